@@ -0,0 +1,98 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityToCoverFetcher;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
+import org.sonar.plugins.technicaldebt.axis.CoverageDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DuplicationDebtCalculator;
+
+/**
+ * Throughput of a single axis evaluated on every resource of a synthetic
+ * project. One operation evaluates one resource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AxisDebtCalculatorBenchmark {
+
+	@Param({ "Complexity", "Coverage", "Duplication" })
+	public String axis;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int files;
+
+	private AxisDebtCalculator calculator;
+	private InMemoryDecoratorContext[] resources;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class));
+		calculator = newCalculator(axis, settings, new CostModel(settings));
+		resources = SyntheticProject.generate(files);
+	}
+
+	private static AxisDebtCalculator newCalculator(String name,
+			Settings settings, CostModel costModel) {
+		if ("Complexity".equals(name)) {
+			return new ComplexityDebtCalculator(settings, costModel);
+		}
+		if ("Coverage".equals(name)) {
+			return new CoverageDebtCalculator(settings, costModel,
+					new ComplexityToCoverFetcher());
+		}
+		if ("Duplication".equals(name)) {
+			return new DuplicationDebtCalculator(settings, costModel);
+		}
+		throw new IllegalArgumentException("Unknown axis: " + name);
+	}
+
+	@Benchmark
+	public AxisDebt evaluate() {
+		InMemoryDecoratorContext context = resources[next];
+		next = next + 1 == resources.length ? 0 : next + 1;
+		return calculator.evaluate(context);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.Event;
+import org.sonar.api.batch.ViolationQuery;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasuresFilter;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Violation;
+
+/**
+ * Decorator context holding its measures in memory, so that benchmarks only
+ * measure the work done by the plugin. Saved measures replace each other per
+ * metric, which keeps the footprint stable across iterations.
+ */
+public final class InMemoryDecoratorContext implements DecoratorContext {
+
+	private final Project project;
+	private final Resource resource;
+	private final Map<Metric, Measure> measures = new HashMap<Metric, Measure>();
+	private final List<DecoratorContext> children = new ArrayList<DecoratorContext>();
+
+	public InMemoryDecoratorContext(Project project, Resource resource) {
+		this.project = project;
+		this.resource = resource;
+	}
+
+	public InMemoryDecoratorContext addMeasure(Metric metric, double value) {
+		measures.put(metric, new Measure(metric, value));
+		return this;
+	}
+
+	public InMemoryDecoratorContext addChild(DecoratorContext child) {
+		children.add(child);
+		return this;
+	}
+
+	public Project getProject() {
+		return project;
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	public List<DecoratorContext> getChildren() {
+		return children;
+	}
+
+	public DecoratorContext saveMeasure(Measure measure) {
+		measures.put(measure.getMetric(), measure);
+		return this;
+	}
+
+	public DecoratorContext saveMeasure(Metric metric, Double value) {
+		return saveMeasure(new Measure(metric, value));
+	}
+
+	public Measure getMeasure(Metric metric) {
+		return measures.get(metric);
+	}
+
+	public Collection<Measure> getChildrenMeasures(Metric metric) {
+		List<Measure> result = new ArrayList<Measure>(children.size());
+		for (DecoratorContext child : children) {
+			Measure measure = child.getMeasure(metric);
+			if (measure != null) {
+				result.add(measure);
+			}
+		}
+		return result;
+	}
+
+	public <M> M getMeasures(MeasuresFilter<M> filter) {
+		return filter.filter(measures.values());
+	}
+
+	public Collection<Measure> getChildrenMeasures(MeasuresFilter filter) {
+		throw new UnsupportedOperationException();
+	}
+
+	public Dependency saveDependency(Dependency dependency) {
+		throw new UnsupportedOperationException();
+	}
+
+	public Set<Dependency> getDependencies() {
+		throw new UnsupportedOperationException();
+	}
+
+	public Collection<Dependency> getIncomingDependencies() {
+		throw new UnsupportedOperationException();
+	}
+
+	public Collection<Dependency> getOutgoingDependencies() {
+		throw new UnsupportedOperationException();
+	}
+
+	public List<Violation> getViolations(ViolationQuery violationQuery) {
+		throw new UnsupportedOperationException();
+	}
+
+	public List<Violation> getViolations() {
+		throw new UnsupportedOperationException();
+	}
+
+	public DecoratorContext saveViolation(Violation violation, boolean force) {
+		throw new UnsupportedOperationException();
+	}
+
+	public DecoratorContext saveViolation(Violation violation) {
+		throw new UnsupportedOperationException();
+	}
+
+	public List<Event> getEvents() {
+		throw new UnsupportedOperationException();
+	}
+
+	public Event createEvent(String name, String description,
+			String category, Date date) {
+		throw new UnsupportedOperationException();
+	}
+
+	public void deleteEvent(Event event) {
+		throw new UnsupportedOperationException();
+	}
+}
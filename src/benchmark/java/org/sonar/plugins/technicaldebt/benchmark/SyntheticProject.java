@@ -0,0 +1,158 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.plugins.cxx.coverage.NoCoverageMetrics;
+import org.sonar.plugins.cxx.distance.DistanceMetrics;
+
+/**
+ * Generates a reproducible resource tree with the measures read by the debt
+ * axes. Contexts are returned in the order Sonar decorates them: the files of
+ * a directory, the directory itself and the project last.
+ */
+public final class SyntheticProject {
+
+	public static final int FILES_PER_DIRECTORY = 100;
+
+	private static final long SEED = 42L;
+
+	private SyntheticProject() {
+	}
+
+	public static InMemoryDecoratorContext[] generate(int files) {
+		Random random = new Random(SEED);
+		Project project = new Project("synthetic");
+		InMemoryDecoratorContext projectContext = new InMemoryDecoratorContext(
+				project, project);
+		List<InMemoryDecoratorContext> contexts = new ArrayList<InMemoryDecoratorContext>(
+				files + files / FILES_PER_DIRECTORY + 2);
+
+		Totals projectTotals = new Totals();
+		for (int first = 0; first < files; first += FILES_PER_DIRECTORY) {
+			String directoryKey = "src/dir" + first / FILES_PER_DIRECTORY;
+			InMemoryDecoratorContext directoryContext = new InMemoryDecoratorContext(
+					project, new Directory(directoryKey));
+			Totals directoryTotals = new Totals();
+
+			int last = Math.min(files, first + FILES_PER_DIRECTORY);
+			for (int i = first; i < last; i++) {
+				InMemoryDecoratorContext fileContext = new InMemoryDecoratorContext(
+						project, new File(directoryKey + "/file" + i + ".cc"));
+				addFileMeasures(fileContext, random, directoryTotals);
+				directoryContext.addChild(fileContext);
+				contexts.add(fileContext);
+			}
+
+			directoryTotals.saveOn(directoryContext);
+			projectTotals.add(directoryTotals);
+			projectContext.addChild(directoryContext);
+			contexts.add(directoryContext);
+		}
+
+		projectTotals.saveOn(projectContext);
+		contexts.add(projectContext);
+		return contexts.toArray(new InMemoryDecoratorContext[contexts.size()]);
+	}
+
+	private static void addFileMeasures(InMemoryDecoratorContext context,
+			Random random, Totals totals) {
+		int lines = 20 + random.nextInt(2000);
+		int complexity = 1 + random.nextInt(120);
+		int distance = random.nextInt(complexity + 1);
+		context.addMeasure(CoreMetrics.LINES, lines);
+		context.addMeasure(CoreMetrics.COMPLEXITY, complexity);
+		context.addMeasure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, distance);
+		totals.lines += lines;
+		totals.complexity += complexity;
+		totals.distance += distance;
+
+		// A third of the files, like headers and tests, have no coverage
+		if (random.nextInt(3) > 0) {
+			double coverage = random.nextInt(101);
+			int notCovered = random.nextInt(complexity / 3 + 1);
+			context.addMeasure(CoreMetrics.COVERAGE, coverage);
+			context.addMeasure(NoCoverageMetrics.NOT_COVERED_COMPLEXITY,
+					notCovered);
+			totals.coveredComplexity += coverage * complexity / 100;
+			totals.complexityWithCoverage += complexity;
+			totals.notCovered += notCovered;
+		}
+
+		if (random.nextInt(5) > 0) {
+			int blocks = random.nextInt(6);
+			double duplicatedLines = Math.min(lines, blocks * 50);
+			context.addMeasure(CoreMetrics.DUPLICATED_BLOCKS, blocks);
+			context.addMeasure(CoreMetrics.DUPLICATED_LINES_DENSITY,
+					100 * duplicatedLines / lines);
+			totals.blocks += blocks;
+			totals.duplicatedLines += duplicatedLines;
+		}
+	}
+
+	/**
+	 * Aggregated measures of a directory or of the project.
+	 */
+	private static final class Totals {
+		double lines;
+		double complexity;
+		double distance;
+		double coveredComplexity;
+		double complexityWithCoverage;
+		double notCovered;
+		double blocks;
+		double duplicatedLines;
+
+		void add(Totals other) {
+			lines += other.lines;
+			complexity += other.complexity;
+			distance += other.distance;
+			coveredComplexity += other.coveredComplexity;
+			complexityWithCoverage += other.complexityWithCoverage;
+			notCovered += other.notCovered;
+			blocks += other.blocks;
+			duplicatedLines += other.duplicatedLines;
+		}
+
+		void saveOn(InMemoryDecoratorContext context) {
+			context.addMeasure(CoreMetrics.LINES, lines);
+			context.addMeasure(CoreMetrics.COMPLEXITY, complexity);
+			context.addMeasure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH,
+					distance);
+			if (complexityWithCoverage > 0) {
+				context.addMeasure(CoreMetrics.COVERAGE, 100
+						* coveredComplexity / complexityWithCoverage);
+				context.addMeasure(NoCoverageMetrics.NOT_COVERED_COMPLEXITY,
+						notCovered);
+			}
+			context.addMeasure(CoreMetrics.DUPLICATED_BLOCKS, blocks);
+			context.addMeasure(CoreMetrics.DUPLICATED_LINES_DENSITY, 100
+					* duplicatedLines / lines);
+		}
+	}
+}
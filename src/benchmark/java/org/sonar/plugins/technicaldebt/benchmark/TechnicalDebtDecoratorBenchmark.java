@@ -0,0 +1,94 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Project;
+import org.sonar.plugins.technicaldebt.TechnicalDebtDecorator;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.AxisRegistry;
+import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityToCoverFetcher;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
+import org.sonar.plugins.technicaldebt.axis.CoverageDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DuplicationDebtCalculator;
+
+/**
+ * Throughput of {@link TechnicalDebtDecorator#decorate} over a synthetic
+ * project. One operation decorates one resource, so with the GC profiler
+ * gc.alloc.rate.norm is the number of bytes allocated per resource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TechnicalDebtDecoratorBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int files;
+
+	private TechnicalDebtDecorator decorator;
+	private InMemoryDecoratorContext[] resources;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class));
+		// The synthetic project has no working directory to write a report to
+		settings.setProperty(TechnicalDebtPlugin.INSTRUMENTATION, false);
+		CostModel costModel = new CostModel(settings);
+		AxisRegistry registry = new AxisRegistry(settings,
+				new AxisDebtCalculator[] {
+						new ComplexityDebtCalculator(settings, costModel),
+						new CoverageDebtCalculator(settings, costModel,
+								new ComplexityToCoverFetcher()),
+						new DuplicationDebtCalculator(settings, costModel) });
+		// Without index the files are evaluated one by one, as they are decorated
+		decorator = new TechnicalDebtDecorator(settings, new Project(
+				"synthetic"), null, registry, costModel);
+		resources = SyntheticProject.generate(files);
+	}
+
+	@Benchmark
+	public void decorate() {
+		InMemoryDecoratorContext context = resources[next];
+		next = next + 1 == resources.length ? 0 : next + 1;
+		decorator.decorate(context.getResource(), context);
+	}
+}
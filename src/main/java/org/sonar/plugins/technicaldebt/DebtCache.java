@@ -0,0 +1,257 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+
+/**
+ * Per-file axis results of the previous analysis, so that files whose input
+ * measures did not change are not evaluated again.
+ * 
+ * Entries are keyed by a hash of the resource key and carry a fingerprint of
+ * the input measures. The whole cache is invalidated when the model
+ * fingerprint (costs, axes and their settings) changes. The previous cache
+ * is read through a memory-mapped file, the results of the current analysis
+ * are kept in primitive arrays and written when {@link #save()} is called.
+ */
+final class DebtCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
+
+	private static final int MAGIC = 0x54444331;
+	private static final int HEADER_SIZE = 20;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long MISSING = 0x7ff80000deadbeefL;
+
+	private final File file;
+	private final long modelFingerprint;
+	private final int axisCount;
+	private final int entrySize;
+
+	// Previous analysis: open addressing index over the mapped entries
+	private ByteBuffer previous;
+	private long[] indexKeys;
+	private int[] indexEntries;
+
+	// Current analysis
+	private long[] keys = new long[1024];
+	private long[] fingerprints = new long[1024];
+	private double[] debts;
+	private int size;
+
+	DebtCache(File file, long modelFingerprint, int axisCount) {
+		this.file = file;
+		this.modelFingerprint = modelFingerprint;
+		this.axisCount = axisCount;
+		entrySize = 16 + 16 * axisCount;
+		debts = new double[keys.length * 2 * axisCount];
+	}
+
+	void load() {
+		if (!file.isFile()) {
+			return;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				long length = channel.size();
+				if (length < HEADER_SIZE) {
+					return;
+				}
+				MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+						length);
+				int count = buffer.getInt(16);
+				if (buffer.getInt(0) != MAGIC
+						|| buffer.getLong(4) != modelFingerprint
+						|| buffer.getInt(12) != axisCount
+						|| HEADER_SIZE + (long) count * entrySize > length) {
+					LOG.info("Technical debt cache is outdated, all files are evaluated");
+					return;
+				}
+				index(buffer, count);
+			} finally {
+				// The mapping stays valid once the file is closed
+				raf.close();
+			}
+		} catch (IOException e) {
+			LOG.warn("Unable to read the technical debt cache " + file, e);
+		}
+	}
+
+	private void index(ByteBuffer buffer, int count) {
+		int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 + 1) * 2;
+		indexKeys = new long[capacity];
+		indexEntries = new int[capacity];
+		for (int entry = 0; entry < count; entry++) {
+			long key = buffer.getLong(HEADER_SIZE + entry * entrySize);
+			int slot = slot(key, capacity);
+			while (indexEntries[slot] != 0) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			indexKeys[slot] = key;
+			indexEntries[slot] = entry + 1;
+		}
+		previous = buffer;
+	}
+
+	private static int slot(long key, int capacity) {
+		return (int) (key ^ (key >>> 32)) & (capacity - 1);
+	}
+
+	/**
+	 * Fills the debts of the resource when the previous analysis evaluated it
+	 * with the same input measures.
+	 */
+	boolean lookup(String resourceKey, long fingerprint, AxisDebt[] into) {
+		if (previous == null) {
+			return false;
+		}
+		long key = hash(resourceKey);
+		int capacity = indexKeys.length;
+		for (int slot = slot(key, capacity); indexEntries[slot] != 0; slot = (slot + 1)
+				& (capacity - 1)) {
+			if (indexKeys[slot] == key) {
+				int offset = HEADER_SIZE + (indexEntries[slot] - 1) * entrySize;
+				if (previous.getLong(offset + 8) != fingerprint) {
+					return false;
+				}
+				for (int axis = 0; axis < axisCount; axis++) {
+					double actual = previous.getDouble(offset + 16 + 16 * axis);
+					double possible = previous.getDouble(offset + 24 + 16
+							* axis);
+					into[axis] = AxisDebtCalculator.isApplicable(possible) ? AxisDebt
+							.of(actual, possible) : AxisDebt
+							.notApplicable(actual);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void store(String resourceKey, long fingerprint, AxisDebt[] axisDebts) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			fingerprints = Arrays.copyOf(fingerprints, size * 2);
+			debts = Arrays.copyOf(debts, debts.length * 2);
+		}
+		keys[size] = hash(resourceKey);
+		fingerprints[size] = fingerprint;
+		int offset = size * 2 * axisCount;
+		for (int axis = 0; axis < axisCount; axis++) {
+			debts[offset++] = axisDebts[axis].getActualDebt();
+			debts[offset++] = axisDebts[axis].isApplicable() ? axisDebts[axis]
+					.getPossibleDebt() : AxisDebtCalculator.NOT_APPLICABLE;
+		}
+		size++;
+	}
+
+	/**
+	 * Replaces the cache file by the results of the current analysis.
+	 */
+	void save() {
+		previous = null;
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+			try {
+				long length = HEADER_SIZE + (long) size * entrySize;
+				raf.setLength(length);
+				MappedByteBuffer buffer = raf.getChannel().map(
+						MapMode.READ_WRITE, 0, length);
+				buffer.putInt(MAGIC).putLong(modelFingerprint)
+						.putInt(axisCount).putInt(size);
+				for (int entry = 0; entry < size; entry++) {
+					buffer.putLong(keys[entry]).putLong(fingerprints[entry]);
+					int offset = entry * 2 * axisCount;
+					for (int i = 0; i < 2 * axisCount; i++) {
+						buffer.putDouble(debts[offset + i]);
+					}
+				}
+				buffer.force();
+			} finally {
+				raf.close();
+			}
+			if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+				LOG.warn("Unable to replace the technical debt cache " + file);
+			}
+		} catch (IOException e) {
+			LOG.warn("Unable to write the technical debt cache " + file, e);
+		}
+	}
+
+	/**
+	 * Fingerprint of the values of the given measures on the resource.
+	 */
+	static long fingerprint(DecoratorContext context, Metric[] metrics) {
+		long fingerprint = FNV_OFFSET;
+		for (Metric metric : metrics) {
+			Measure measure = context.getMeasure(metric);
+			if (measure == null) {
+				fingerprint = mix(fingerprint, MISSING);
+			} else {
+				Double value = measure.getValue();
+				fingerprint = mix(fingerprint,
+						value == null ? MISSING : Double
+								.doubleToLongBits(value));
+				String data = measure.getData();
+				fingerprint = mix(fingerprint, data == null ? MISSING
+						: hash(data));
+			}
+		}
+		return fingerprint;
+	}
+
+	static long hash(String value) {
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	static long mix(long fingerprint, long value) {
+		long mixed = fingerprint;
+		for (int i = 0; i < 8; i++) {
+			mixed = (mixed ^ (value & 0xff)) * FNV_PRIME;
+			value >>>= 8;
+		}
+		return mixed;
+	}
+}
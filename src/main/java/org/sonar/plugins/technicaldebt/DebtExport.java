@@ -0,0 +1,254 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.Resource;
+
+/**
+ * Streams one record per decorated resource to a local file, either as
+ * newline delimited JSON or as CSV, so that the debt of every file can be
+ * loaded elsewhere without querying the server.
+ * 
+ * Records are encoded into a single buffer that is flushed to the channel
+ * when it is full: the export does not keep anything of the resources.
+ */
+final class DebtExport {
+
+	static final String NDJSON = "ndjson";
+	static final String CSV = "csv";
+
+	private static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final boolean csv;
+	private final String[] axisNames;
+	private final double dailyRate;
+	private final StringBuilder record = new StringBuilder(256);
+	private final CharsetEncoder encoder = Charset.forName("UTF-8")
+			.newEncoder();
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private FileOutputStream output;
+	private FileChannel channel;
+	private boolean failed;
+
+	DebtExport(File file, String format, String[] axisNames, double dailyRate) {
+		this.file = file;
+		this.csv = CSV.equalsIgnoreCase(format);
+		this.axisNames = axisNames;
+		this.dailyRate = dailyRate;
+	}
+
+	static boolean isFormat(String format) {
+		return NDJSON.equalsIgnoreCase(format) || CSV.equalsIgnoreCase(format);
+	}
+
+	static String extension(String format) {
+		return CSV.equalsIgnoreCase(format) ? CSV : NDJSON;
+	}
+
+	/**
+	 * The debt of the resource as counted in its measures, in man days.
+	 */
+	void write(Resource resource, DebtVector vector) {
+		if (failed) {
+			return;
+		}
+		if (channel == null && !open()) {
+			return;
+		}
+		record.setLength(0);
+		if (csv) {
+			appendCsv(resource, vector);
+		} else {
+			appendJson(resource, vector);
+		}
+		record.append('\n');
+		encode();
+	}
+
+	private void appendJson(Resource resource, DebtVector vector) {
+		double days = vector.getTotalActualDebt();
+		record.append("{\"key\":");
+		Reports.appendString(record, DebtPrecomputer.keyOf(resource));
+		record.append(",\"scope\":");
+		Reports.appendString(record, resource.getScope());
+		record.append(",\"days\":");
+		Reports.appendNumber(record, days);
+		record.append(",\"cost\":");
+		Reports.appendNumber(record, days * dailyRate);
+		record.append(",\"ratio\":");
+		Reports.appendNumber(record, ratio(vector));
+		record.append(",\"axes\":{");
+		for (int i = 0; i < axisNames.length; i++) {
+			if (i > 0) {
+				record.append(',');
+			}
+			Reports.appendString(record, axisNames[i]);
+			record.append(":{\"actual\":");
+			Reports.appendNumber(record, vector.getActualDebt(i));
+			record.append(",\"possible\":");
+			Reports.appendNumber(record, vector.getPossibleDebt(i));
+			record.append('}');
+		}
+		record.append("}}");
+	}
+
+	private void appendCsv(Resource resource, DebtVector vector) {
+		double days = vector.getTotalActualDebt();
+		appendCsvString(DebtPrecomputer.keyOf(resource));
+		record.append(',').append(resource.getScope());
+		record.append(',').append(days);
+		record.append(',').append(days * dailyRate);
+		record.append(',');
+		double ratio = ratio(vector);
+		if (!Double.isNaN(ratio)) {
+			record.append(ratio);
+		}
+		for (int i = 0; i < axisNames.length; i++) {
+			record.append(',').append(vector.getActualDebt(i));
+			record.append(',').append(vector.getPossibleDebt(i));
+		}
+	}
+
+	private void appendHeader() {
+		record.setLength(0);
+		record.append("key,scope,days,cost,ratio");
+		for (String axis : axisNames) {
+			record.append(',');
+			appendCsvString(axis + ".actual");
+			record.append(',');
+			appendCsvString(axis + ".possible");
+		}
+		record.append('\n');
+		encode();
+	}
+
+	private void appendCsvString(String value) {
+		boolean quoted = false;
+		for (int i = 0; i < value.length() && !quoted; i++) {
+			char c = value.charAt(i);
+			quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quoted) {
+			record.append(value);
+			return;
+		}
+		record.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				record.append('"');
+			}
+			record.append(c);
+		}
+		record.append('"');
+	}
+
+	private static double ratio(DebtVector vector) {
+		double possible = vector.getTotalPossibleDebt();
+		return possible > 0.0 ? vector.getTotalActualDebt() / possible * 100
+				: Double.NaN;
+	}
+
+	private boolean open() {
+		try {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			output = new FileOutputStream(file);
+			channel = output.getChannel();
+		} catch (IOException e) {
+			fail(e);
+			return false;
+		}
+		if (csv) {
+			appendHeader();
+		}
+		return !failed;
+	}
+
+	private void encode() {
+		CharBuffer chars = CharBuffer.wrap(record);
+		encoder.reset();
+		try {
+			while (true) {
+				CoderResult result = encoder.encode(chars, buffer, true);
+				if (result.isOverflow()) {
+					flush();
+				} else if (result.isUnderflow()) {
+					break;
+				} else {
+					result.throwException();
+				}
+			}
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the remaining records, the export can not be written anymore.
+	 */
+	void close() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			if (!failed) {
+				flush();
+			}
+		} catch (IOException e) {
+			fail(e);
+		} finally {
+			try {
+				output.close();
+			} catch (IOException e) {
+				LOG.warn("Unable to close the technical debt export " + file, e);
+			}
+			channel = null;
+			failed = true;
+		}
+	}
+
+	private void fail(IOException e) {
+		LOG.warn("Unable to write the technical debt export " + file, e);
+		failed = true;
+	}
+}
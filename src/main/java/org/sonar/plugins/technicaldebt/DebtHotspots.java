@@ -0,0 +1,169 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The files with the highest debt, overall and on each axis, kept in
+ * bounded min-heaps while the files are decorated. Formatted as one line
+ * per file, "group\tdebt in days\tresource key", the worst first.
+ */
+final class DebtHotspots {
+
+	static final String TOTAL = "Total";
+
+	private final String[] groups;
+	private final int capacity;
+	private final double[][] debts;
+	private final String[][] keys;
+	private final int[] sizes;
+
+	DebtHotspots(String[] axisNames, int capacity) {
+		groups = new String[axisNames.length + 1];
+		groups[0] = TOTAL;
+		System.arraycopy(axisNames, 0, groups, 1, axisNames.length);
+		this.capacity = capacity;
+		debts = new double[groups.length][capacity];
+		keys = new String[groups.length][capacity];
+		sizes = new int[groups.length];
+	}
+
+	void offerTotal(String key, double debt) {
+		offer(0, key, debt);
+	}
+
+	void offerAxis(int axis, String key, double debt) {
+		offer(axis + 1, key, debt);
+	}
+
+	/**
+	 * Adds the hotspots formatted by another instance, of a module for
+	 * instance. Unknown groups are ignored.
+	 */
+	void add(String data) {
+		int start = 0;
+		while (start < data.length()) {
+			int end = data.indexOf('\n', start);
+			if (end < 0) {
+				end = data.length();
+			}
+			int firstTab = data.indexOf('\t', start);
+			int secondTab = firstTab < 0 ? -1 : data.indexOf('\t',
+					firstTab + 1);
+			if (secondTab > 0 && secondTab < end) {
+				int group = indexOf(data.substring(start, firstTab));
+				if (group >= 0) {
+					offer(group, data.substring(secondTab + 1, end), Double
+							.parseDouble(data.substring(firstTab + 1,
+									secondTab)));
+				}
+			}
+			start = end + 1;
+		}
+	}
+
+	private int indexOf(String group) {
+		for (int i = 0; i < groups.length; i++) {
+			if (groups[i].equals(group)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void offer(int group, String key, double debt) {
+		if (!(debt > 0.0) || capacity == 0) {
+			return;
+		}
+		double[] heap = debts[group];
+		String[] heapKeys = keys[group];
+		int size = sizes[group];
+		if (size < capacity) {
+			// Sift up
+			int child = size;
+			while (child > 0) {
+				int parent = (child - 1) >>> 1;
+				if (heap[parent] <= debt) {
+					break;
+				}
+				heap[child] = heap[parent];
+				heapKeys[child] = heapKeys[parent];
+				child = parent;
+			}
+			heap[child] = debt;
+			heapKeys[child] = key;
+			sizes[group] = size + 1;
+		} else if (debt > heap[0]) {
+			// Replace the smallest, then sift down
+			int parent = 0;
+			while (true) {
+				int child = 2 * parent + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && heap[child + 1] < heap[child]) {
+					child++;
+				}
+				if (heap[child] >= debt) {
+					break;
+				}
+				heap[parent] = heap[child];
+				heapKeys[parent] = heapKeys[child];
+				parent = child;
+			}
+			heap[parent] = debt;
+			heapKeys[parent] = key;
+		}
+	}
+
+	boolean isEmpty() {
+		return sizes[0] == 0;
+	}
+
+	String format() {
+		StringBuilder data = new StringBuilder();
+		Integer[] order = new Integer[capacity];
+		for (int group = 0; group < groups.length; group++) {
+			final double[] heap = debts[group];
+			final String[] heapKeys = keys[group];
+			int size = sizes[group];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			// Only K entries, the worst first then by key
+			Arrays.sort(order, 0, size, new Comparator<Integer>() {
+				public int compare(Integer left, Integer right) {
+					int byDebt = Double.compare(heap[right], heap[left]);
+					return byDebt != 0 ? byDebt : heapKeys[left]
+							.compareTo(heapKeys[right]);
+				}
+			});
+			for (int i = 0; i < size; i++) {
+				data.append(groups[group]).append('\t')
+						.append(heap[order[i]]).append('\t')
+						.append(keys[group][order[i]]).append('\n');
+			}
+		}
+		return data.toString();
+	}
+}
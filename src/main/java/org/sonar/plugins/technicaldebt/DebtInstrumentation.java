@@ -0,0 +1,225 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.Scopes;
+
+/**
+ * Time spent and results of every axis, and latency of the decorator per
+ * scope of resource. Only the decorator thread updates it, JMX clients may
+ * read values a few resources late.
+ */
+final class DebtInstrumentation implements DebtInstrumentationMBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
+
+	private static final String[] SCOPES = { Scopes.PROJECT,
+			Scopes.DIRECTORY, Scopes.FILE, Scopes.PROGRAM_UNIT,
+			Scopes.BLOCK_UNIT };
+	private static final int OTHER_SCOPE = SCOPES.length;
+
+	/** Bucket i counts the latencies in [2^i, 2^(i+1)[ nanoseconds */
+	private static final int BUCKETS = Long.SIZE;
+
+	private final String module;
+	private final String[] axisNames;
+	private final long[] axisEvaluations;
+	private final long[] axisNanos;
+	private final long[] axisNotApplicable;
+	private final long[] scopeResources = new long[SCOPES.length + 1];
+	private final long[] scopeNanos = new long[SCOPES.length + 1];
+	private final long[][] scopeHistograms = new long[SCOPES.length + 1][BUCKETS];
+	private long resources;
+	private long zeroDebtResources;
+	private long cachedResources;
+	private long precomputeNanos;
+	private ObjectName objectName;
+
+	DebtInstrumentation(String module, String[] axisNames) {
+		this.module = module;
+		this.axisNames = axisNames.clone();
+		axisEvaluations = new long[axisNames.length];
+		axisNanos = new long[axisNames.length];
+		axisNotApplicable = new long[axisNames.length];
+	}
+
+	void axisEvaluated(int axis, long nanos) {
+		axisEvaluations[axis]++;
+		axisNanos[axis] += nanos;
+	}
+
+	void axisNotApplicable(int axis) {
+		axisNotApplicable[axis]++;
+	}
+
+	void resourceDecorated(String scope, long nanos, boolean zeroDebt) {
+		int index = scopeIndex(scope);
+		resources++;
+		if (zeroDebt) {
+			zeroDebtResources++;
+		}
+		scopeResources[index]++;
+		scopeNanos[index] += nanos;
+		scopeHistograms[index][bucket(nanos)]++;
+	}
+
+	void resourceCached() {
+		cachedResources++;
+	}
+
+	void precomputed(long nanos) {
+		precomputeNanos += nanos;
+	}
+
+	private static int scopeIndex(String scope) {
+		for (int i = 0; i < SCOPES.length; i++) {
+			if (SCOPES[i].equals(scope)) {
+				return i;
+			}
+		}
+		return OTHER_SCOPE;
+	}
+
+	private static int bucket(long nanos) {
+		return nanos > 0L ? Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)
+				: 0;
+	}
+
+	public long getResources() {
+		return resources;
+	}
+
+	public long getZeroDebtResources() {
+		return zeroDebtResources;
+	}
+
+	public long getCachedResources() {
+		return cachedResources;
+	}
+
+	public long getPrecomputeNanos() {
+		return precomputeNanos;
+	}
+
+	public String[] getAxisNames() {
+		return axisNames.clone();
+	}
+
+	public long[] getAxisEvaluations() {
+		return axisEvaluations.clone();
+	}
+
+	public long[] getAxisNanos() {
+		return axisNanos.clone();
+	}
+
+	public long[] getAxisNotApplicable() {
+		return axisNotApplicable.clone();
+	}
+
+	public String getReport() {
+		StringBuilder json = new StringBuilder(1024);
+		json.append("{\n  \"module\": ");
+		Reports.appendString(json, module);
+		json.append(",\n  \"resources\": ").append(resources);
+		json.append(",\n  \"zeroDebtResources\": ").append(zeroDebtResources);
+		json.append(",\n  \"cachedResources\": ").append(cachedResources);
+		json.append(",\n  \"precomputeNanos\": ").append(precomputeNanos);
+		json.append(",\n  \"axes\": [");
+		for (int i = 0; i < axisNames.length; i++) {
+			json.append(i > 0 ? ",\n    {" : "\n    {").append("\"name\": ");
+			Reports.appendString(json, axisNames[i]);
+			json.append(", \"evaluations\": ").append(axisEvaluations[i]);
+			json.append(", \"nanos\": ").append(axisNanos[i]);
+			json.append(", \"notApplicable\": ").append(axisNotApplicable[i]);
+			json.append('}');
+		}
+		json.append("\n  ],\n  \"scopes\": [");
+		boolean first = true;
+		for (int i = 0; i <= SCOPES.length; i++) {
+			if (scopeResources[i] == 0L) {
+				continue;
+			}
+			json.append(first ? "\n    {" : ",\n    {").append("\"scope\": ");
+			Reports.appendString(json, i < SCOPES.length ? SCOPES[i] : "other");
+			json.append(", \"resources\": ").append(scopeResources[i]);
+			json.append(", \"nanos\": ").append(scopeNanos[i]);
+			json.append(", \"histogram\": {");
+			boolean firstBucket = true;
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				if (scopeHistograms[i][bucket] > 0L) {
+					json.append(firstBucket ? "\"" : ", \"")
+							.append(1L << bucket).append("\": ")
+							.append(scopeHistograms[i][bucket]);
+					firstBucket = false;
+				}
+			}
+			json.append("}}");
+			first = false;
+		}
+		return json.append("\n  ]\n}\n").toString();
+	}
+
+	void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(
+					"org.sonar.plugins.technicaldebt:type=Instrumentation,module="
+							+ ObjectName.quote(module));
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new StandardMBean(this,
+						DebtInstrumentationMBean.class), name);
+				objectName = name;
+			}
+		} catch (JMException e) {
+			LOG.debug("Unable to register the technical debt instrumentation",
+					e);
+		}
+	}
+
+	void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					objectName);
+		} catch (JMException e) {
+			LOG.debug("Unable to unregister the technical debt instrumentation",
+					e);
+		}
+		objectName = null;
+	}
+
+	void write(File file) {
+		Reports.write(file, getReport());
+	}
+}
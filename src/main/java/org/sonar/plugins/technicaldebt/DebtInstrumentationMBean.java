@@ -0,0 +1,49 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+/**
+ * Read-only view of the instrumentation of the decorator, registered in the
+ * platform MBean server while a module is analysed.
+ */
+public interface DebtInstrumentationMBean {
+
+	long getResources();
+
+	long getZeroDebtResources();
+
+	long getCachedResources();
+
+	long getPrecomputeNanos();
+
+	String[] getAxisNames();
+
+	long[] getAxisEvaluations();
+
+	long[] getAxisNanos();
+
+	long[] getAxisNotApplicable();
+
+	/**
+	 * The whole instrumentation, in the format of the report.
+	 */
+	String getReport();
+}
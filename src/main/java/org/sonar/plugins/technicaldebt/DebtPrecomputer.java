@@ -0,0 +1,325 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
+import org.sonar.plugins.cxx.distance.DistanceMetrics;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.MeasureSnapshot;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+/**
+ * Evaluates the axes on every file of a module before the decorators reach
+ * them, from a snapshot of their input measures and on several threads.
+ *
+ * The snapshot is taken when the first file is decorated, before the other
+ * decorators (coverage, duplication density, violations...) reached the
+ * other files. Only the axes whose inputs are all saved by sensors are
+ * precomputed, the other ones are left to the decorator: of the built-in
+ * axes, only the complexity axis qualifies, next to the formula axes reading
+ * measures of the sensors. Coverage, duplication, violations and design read
+ * measures saved by decorators, comments may read the sources.
+ *
+ * Measures can not be replaced once saved, so an input present in the
+ * snapshot still has the same value when the file is decorated. An input
+ * missing from the snapshot may have been saved since: the axes reading it
+ * are then evaluated again on the real context.
+ *
+ * Only the snapshot, by column, and the debts of the precomputed axes by row
+ * are kept until the files are decorated.
+ */
+final class DebtPrecomputer {
+
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int MIN_CHUNK_SIZE = 256;
+
+	/** Saved on files by the sensors, before any decorator runs */
+	private static final Set<Metric> SENSOR_METRICS = ImmutableSet.<Metric> of(
+			CoreMetrics.LINES, CoreMetrics.NCLOC, CoreMetrics.COMPLEXITY,
+			CoreMetrics.FUNCTIONS, CoreMetrics.COMMENT_LINES,
+			CoreMetrics.DUPLICATED_BLOCKS, CoreMetrics.DUPLICATED_LINES,
+			CoreMetrics.DUPLICATIONS_DATA,
+			CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, CoreMetrics.LCOM4,
+			CoreMetrics.COVERAGE_LINE_HITS_DATA,
+			DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH);
+
+	private final AxisDebtCalculator[] axes;
+	private final Metric[] metrics;
+	/** Indexes of the axes precomputed, a column of debts each */
+	private final int[] precomputed;
+	/** Input metrics of each precomputed axis */
+	private final long[] axisMasks;
+	private final int threads;
+	private final boolean offHeap;
+
+	private MeasureSnapshot snapshot;
+	private double[] actualDebts;
+	private double[] possibleDebts;
+
+	DebtPrecomputer(List<AxisDebtCalculator> axisList, int threads) {
+		this(axisList, threads, false);
+	}
+
+	DebtPrecomputer(List<AxisDebtCalculator> axisList, int threads,
+			boolean offHeap) {
+		this.axes = axisList.toArray(new AxisDebtCalculator[axisList.size()]);
+		this.metrics = snapshotMetrics(axisList);
+		this.threads = threads;
+		this.offHeap = offHeap;
+		List<Integer> indexes = Lists.newArrayList();
+		for (int i = 0; i < axes.length; i++) {
+			if (isPrecomputable(axes[i])) {
+				indexes.add(i);
+			}
+		}
+		precomputed = Ints.toArray(indexes);
+		axisMasks = new long[precomputed.length];
+		for (int j = 0; j < precomputed.length; j++) {
+			for (Metric metric : axes[precomputed[j]].inputMetrics()) {
+				axisMasks[j] |= 1L << indexOf(metric);
+			}
+		}
+	}
+
+	/**
+	 * At least one axis can be precomputed, and its inputs fit in a snapshot.
+	 */
+	static boolean supports(List<AxisDebtCalculator> axisList) {
+		Metric[] metrics = snapshotMetrics(axisList);
+		return metrics.length > 0
+				&& metrics.length <= MeasureSnapshot.MAX_METRICS;
+	}
+
+	/**
+	 * The axis supports snapshots and only reads measures of the sensors.
+	 */
+	static boolean isPrecomputable(AxisDebtCalculator axis) {
+		return axis.supportsSnapshot()
+				&& SENSOR_METRICS.containsAll(axis.inputMetrics());
+	}
+
+	private static Metric[] snapshotMetrics(List<AxisDebtCalculator> axisList) {
+		Set<Metric> metrics = Sets.newLinkedHashSet();
+		for (AxisDebtCalculator axis : axisList) {
+			if (isPrecomputable(axis)) {
+				metrics.addAll(axis.inputMetrics());
+			}
+		}
+		return metrics.toArray(new Metric[metrics.size()]);
+	}
+
+	private int indexOf(Metric metric) {
+		for (int i = 0; i < metrics.length; i++) {
+			if (metrics[i].equals(metric)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown metric "
+				+ metric.getKey());
+	}
+
+	/**
+	 * Takes the snapshot of the files of the project, then evaluates them.
+	 */
+	void precompute(SonarIndex index, Project project) {
+		List<Resource> files = Lists.newArrayList();
+		for (Resource resource : index.getResources()) {
+			if (Scopes.isFile(resource) && project.equals(moduleOf(index, resource))) {
+				files.add(resource);
+			}
+		}
+		precompute(index, files, project);
+	}
+
+	private static Resource moduleOf(SonarIndex index, Resource resource) {
+		Resource parent = index.getParent(resource);
+		while (parent != null && !Scopes.isProject(parent)) {
+			parent = index.getParent(parent);
+		}
+		return parent;
+	}
+
+	void precompute(SonarIndex index, Collection<Resource> files,
+			Project project) {
+		int count = files.size();
+		Resource[] resources = files.toArray(new Resource[count]);
+		long keyLength = 0L;
+		for (Resource resource : resources) {
+			keyLength += keyOf(resource).length();
+		}
+		try {
+			int debtCount = MeasureSnapshot.checkedSize(count,
+					precomputed.length);
+			snapshot = new MeasureSnapshot(metrics, count, keyLength, offHeap);
+			actualDebts = new double[debtCount];
+			possibleDebts = new double[debtCount];
+		} catch (IllegalArgumentException e) {
+			TechnicalDebtDecorator.LOG.warn(
+					"Too many files to precompute, they are evaluated one by one: "
+							+ e.getMessage());
+			clear();
+			return;
+		}
+
+		// The index is not thread-safe, it is only read from here
+		for (Resource resource : resources) {
+			int row = snapshot.add(keyOf(resource));
+			for (int i = 0; i < metrics.length; i++) {
+				Measure measure = index.getMeasure(resource, metrics[i]);
+				snapshot.set(row, i, measure);
+			}
+		}
+
+		if (threads <= 1 || count <= MIN_CHUNK_SIZE) {
+			new Chunk(project, resources, 0, count).run();
+			return;
+		}
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, count
+				/ (threads * CHUNKS_PER_THREAD) + 1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = Lists.newArrayList();
+			for (int from = 0; from < count; from += chunkSize) {
+				futures.add(executor.submit(new Chunk(project, resources,
+						from, Math.min(count, from + chunkSize))));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			clear();
+		} catch (ExecutionException e) {
+			TechnicalDebtDecorator.LOG.warn(
+					"Debt precompute failed, files are evaluated one by one",
+					e.getCause());
+			clear();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void clear() {
+		snapshot = null;
+		actualDebts = null;
+		possibleDebts = null;
+	}
+
+	/**
+	 * Fills the debt of the axes precomputed for the resource whose inputs did
+	 * not change since the snapshot, and leaves the other ones null.
+	 */
+	void lookup(Resource resource, DecoratorContext context, AxisDebt[] into) {
+		int row = snapshot != null ? snapshot.rowOf(keyOf(resource)) : -1;
+		if (row < 0) {
+			return;
+		}
+		long appeared = 0L;
+		for (long bits = snapshot.getMissing(row); bits != 0L; bits &= bits - 1) {
+			int i = Long.numberOfTrailingZeros(bits);
+			if (context.getMeasure(metrics[i]) != null) {
+				appeared |= 1L << i;
+			}
+		}
+		for (int j = 0; j < precomputed.length; j++) {
+			int offset = row * precomputed.length + j;
+			if ((axisMasks[j] & appeared) == 0L
+					&& !Double.isNaN(actualDebts[offset])) {
+				double possible = possibleDebts[offset];
+				into[precomputed[j]] = AxisDebtCalculator
+						.isApplicable(possible) ? AxisDebt.of(
+						actualDebts[offset], possible) : AxisDebt
+						.notApplicable(actualDebts[offset]);
+			}
+		}
+	}
+
+	static String keyOf(Resource resource) {
+		String key = resource.getEffectiveKey();
+		return key != null ? key : resource.getKey();
+	}
+
+	/**
+	 * Evaluates a range of rows, each chunk writes to its own slots only.
+	 */
+	private final class Chunk implements Runnable {
+
+		private final SnapshotDecoratorContext context;
+		private final Resource[] resources;
+		private final int from;
+		private final int to;
+
+		Chunk(Project project, Resource[] resources, int from, int to) {
+			this.context = new SnapshotDecoratorContext(project, snapshot);
+			this.resources = resources;
+			this.from = from;
+			this.to = to;
+		}
+
+		public void run() {
+			for (int row = from; row < to; row++) {
+				context.reset(resources[row], row);
+				for (int j = 0; j < precomputed.length; j++) {
+					int offset = row * precomputed.length + j;
+					AxisDebtCalculator axis = axes[precomputed[j]];
+					// NaN marks the axes left to the decorator
+					actualDebts[offset] = Double.NaN;
+					try {
+						AxisDebt debt = axis.evaluate(context);
+						if (context.resetWritten()) {
+							// Its writes only reach the real context
+							continue;
+						}
+						actualDebts[offset] = debt.getActualDebt();
+						possibleDebts[offset] = debt.isApplicable() ? debt
+								.getPossibleDebt()
+								: AxisDebtCalculator.NOT_APPLICABLE;
+					} catch (RuntimeException e) {
+						context.resetWritten();
+						TechnicalDebtDecorator.LOG.debug(
+								"Axis {} is evaluated again on {}", axis
+										.getName(), resources[row]);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.File;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
+
+/**
+ * Debt of a project under alternative cost models. The axes are evaluated
+ * once: their debt is proportional to one cost, so the debt of every
+ * scenario is the debt of the analysis scaled by the ratio of the costs.
+ */
+final class DebtScenarios {
+
+	private static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
+
+	private final String[] names;
+	private final String[] axisNames;
+	private final double[] dailyRates;
+	/** [scenario * axes + axis], 1 for the axes that can not be scaled */
+	private final double[] scales;
+	private final double[] actualDebts;
+	private final double[] possibleDebts;
+	private boolean evaluated;
+
+	DebtScenarios(Settings settings, CostModel costModel,
+			List<AxisDebtCalculator> axes, String[] axisNames) {
+		String[] scenarios = settings
+				.getStringArray(TechnicalDebtPlugin.SCENARIOS);
+		// The analysis itself comes first
+		names = new String[scenarios.length + 1];
+		names[0] = "analysis";
+		System.arraycopy(scenarios, 0, names, 1, scenarios.length);
+		this.axisNames = axisNames;
+		dailyRates = new double[names.length];
+		scales = new double[names.length * axes.size()];
+		actualDebts = new double[names.length * axes.size()];
+		possibleDebts = new double[names.length * axes.size()];
+		for (int s = 0; s < names.length; s++) {
+			CostModel model = s == 0 ? costModel : CostModel.scenario(
+					settings, names[s]);
+			dailyRates[s] = model.getDailyRate();
+			boolean overridden = model.fingerprint() != costModel
+					.fingerprint();
+			for (int i = 0; i < axes.size(); i++) {
+				scales[s * axes.size() + i] = scale(
+						axes.get(i).linearCost(costModel), axes.get(i)
+								.linearCost(model), overridden, names[s],
+						axisNames[i]);
+			}
+		}
+	}
+
+	/**
+	 * An axis without linear cost, or whose cost is 0 in the analysis, keeps
+	 * its debt of the analysis in the scenarios that change its costs.
+	 */
+	private static double scale(double cost, double scenarioCost,
+			boolean overridden, String scenario, String axis) {
+		if (cost == scenarioCost || !overridden) {
+			return 1.0;
+		}
+		if (Double.isNaN(cost) || Double.isNaN(scenarioCost) || cost == 0.0) {
+			LOG.warn("Scenario " + scenario + " can not be applied to the "
+					+ axis + " axis, its debt is the one of the analysis");
+			return 1.0;
+		}
+		return scenarioCost / cost;
+	}
+
+	/**
+	 * Only the vector of the project is evaluated.
+	 */
+	void evaluate(DebtVector vector) {
+		int axes = axisNames.length;
+		for (int s = 0; s < names.length; s++) {
+			for (int i = 0; i < axes; i++) {
+				int offset = s * axes + i;
+				actualDebts[offset] = vector.getActualDebt(i) * scales[offset];
+				possibleDebts[offset] = vector.getPossibleDebt(i)
+						* scales[offset];
+			}
+		}
+		evaluated = true;
+	}
+
+	String getReport(String module) {
+		int axes = axisNames.length;
+		StringBuilder json = new StringBuilder(256 * names.length);
+		json.append("{\n  \"module\": ");
+		Reports.appendString(json, module);
+		json.append(",\n  \"scenarios\": [");
+		for (int s = 0; s < names.length; s++) {
+			double days = 0.0;
+			double possible = 0.0;
+			for (int i = 0; i < axes; i++) {
+				days += actualDebts[s * axes + i];
+				possible += possibleDebts[s * axes + i];
+			}
+			json.append(s > 0 ? ",\n    {" : "\n    {").append("\"name\": ");
+			Reports.appendString(json, names[s]);
+			json.append(", \"dailyRate\": ");
+			Reports.appendNumber(json, dailyRates[s]);
+			json.append(", \"days\": ");
+			Reports.appendNumber(json, days);
+			json.append(", \"cost\": ");
+			Reports.appendNumber(json, days * dailyRates[s]);
+			json.append(", \"ratio\": ");
+			Reports.appendNumber(json, possible > 0.0 ? days / possible
+					* 100 : Double.NaN);
+			json.append(", \"axes\": {");
+			for (int i = 0; i < axes; i++) {
+				if (i > 0) {
+					json.append(", ");
+				}
+				Reports.appendString(json, axisNames[i]);
+				json.append(": ");
+				Reports.appendNumber(json, actualDebts[s * axes + i]);
+			}
+			json.append("}}");
+		}
+		return json.append("\n  ]\n}\n").toString();
+	}
+
+	void write(File file, String module) {
+		if (evaluated) {
+			Reports.write(file, getReport(module));
+		}
+	}
+}
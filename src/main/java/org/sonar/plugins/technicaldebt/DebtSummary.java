@@ -0,0 +1,48 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+/**
+ * Data of the summary measure read by the widget:
+ * "coverage=true;design=false|" followed by the data of the repartition
+ * measure, then by '|' and the hotspots when there are some. The debt, days
+ * and ratio keep their own measures, whose trends the widget shows.
+ */
+final class DebtSummary {
+
+	static final char SEPARATOR = '|';
+
+	private DebtSummary() {
+	}
+
+	static String format(boolean coverage, boolean design,
+			String repartition, String hotspots) {
+		StringBuilder data = new StringBuilder(32 + repartition.length()
+				+ hotspots.length());
+		data.append("coverage=").append(coverage);
+		data.append(";design=").append(design);
+		data.append(SEPARATOR).append(repartition);
+		if (hotspots.length() > 0) {
+			data.append(SEPARATOR).append(hotspots);
+		}
+		return data.toString();
+	}
+}
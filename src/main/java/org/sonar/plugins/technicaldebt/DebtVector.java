@@ -0,0 +1,141 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+
+/**
+ * Debt of a resource broken down by axis, as it is counted in the totals: an
+ * axis that does not apply to the resource contributes neither actual nor
+ * possible debt. Vectors are additive, so the vector of a directory or of a
+ * project is the sum of the vectors of its children.
+ * 
+ * The data format is "Axis=actual:possible;..." in man days.
+ */
+final class DebtVector {
+
+	private final String[] axisNames;
+	private final double[] actualDebts;
+	private final double[] possibleDebts;
+
+	DebtVector(String[] axisNames) {
+		this.axisNames = axisNames;
+		actualDebts = new double[axisNames.length];
+		possibleDebts = new double[axisNames.length];
+	}
+
+	void set(int axis, AxisDebt debt) {
+		if (debt.isApplicable()) {
+			actualDebts[axis] = debt.getActualDebt();
+			possibleDebts[axis] = debt.getPossibleDebt();
+		} else {
+			actualDebts[axis] = 0.0;
+			possibleDebts[axis] = 0.0;
+		}
+	}
+
+	/**
+	 * Adds a vector formatted by {@link #format()}. Unknown axes, for example
+	 * axes disabled since the data was written, are ignored.
+	 */
+	void add(String data) {
+		int start = 0;
+		while (start < data.length()) {
+			int end = data.indexOf(';', start);
+			if (end < 0) {
+				end = data.length();
+			}
+			int equals = data.indexOf('=', start);
+			int colon = data.indexOf(':', equals + 1);
+			int axis = indexOf(data, start, equals - start);
+			if (axis >= 0 && equals < colon && colon < end) {
+				actualDebts[axis] += Double.parseDouble(data.substring(
+						equals + 1, colon));
+				possibleDebts[axis] += Double.parseDouble(data.substring(
+						colon + 1, end));
+			}
+			start = end + 1;
+		}
+	}
+
+	private int indexOf(String data, int start, int length) {
+		for (int i = 0; i < axisNames.length; i++) {
+			if (axisNames[i].length() == length
+					&& data.regionMatches(start, axisNames[i], 0, length)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	int size() {
+		return axisNames.length;
+	}
+
+	double getActualDebt(int axis) {
+		return actualDebts[axis];
+	}
+
+	double getPossibleDebt(int axis) {
+		return possibleDebts[axis];
+	}
+
+	/**
+	 * The debt of the axis as it is counted in the totals: not applicable
+	 * when it contributes nothing.
+	 */
+	AxisDebt getAxisDebt(int axis) {
+		if (actualDebts[axis] == 0.0 && possibleDebts[axis] == 0.0) {
+			return AxisDebt.notApplicable(0.0);
+		}
+		return AxisDebt.of(actualDebts[axis], possibleDebts[axis]);
+	}
+
+	double getTotalActualDebt() {
+		double total = 0.0;
+		for (double debt : actualDebts) {
+			total += debt;
+		}
+		return total;
+	}
+
+	double getTotalPossibleDebt() {
+		double total = 0.0;
+		for (double debt : possibleDebts) {
+			total += debt;
+		}
+		return total;
+	}
+
+	String format() {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < axisNames.length; i++) {
+			if (actualDebts[i] != 0.0 || possibleDebts[i] != 0.0) {
+				if (data.length() > 0) {
+					data.append(';');
+				}
+				data.append(axisNames[i]).append('=').append(actualDebts[i])
+						.append(':').append(possibleDebts[i]);
+			}
+		}
+		return data.toString();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.util.Arrays;
+
+import org.sonar.api.measures.Measure;
+
+/**
+ * Builds the repartition measure of a resource, in the format of a
+ * PropertiesBuilder<String, Double>: "Axis=percentage;..." sorted by axis
+ * name, without boxing the percentages nor sorting the names every time.
+ * Not thread-safe, one instance is reused for all the resources.
+ */
+final class RepartitionEncoder {
+
+	private final String[] prefixes;
+	private final int[] order;
+	private final double[] values;
+	private final StringBuilder buffer = new StringBuilder();
+
+	RepartitionEncoder(String[] axisNames) {
+		String[] sorted = axisNames.clone();
+		Arrays.sort(sorted);
+		prefixes = new String[sorted.length];
+		order = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			prefixes[i] = sorted[i] + '=';
+			order[i] = Arrays.asList(axisNames).indexOf(sorted[i]);
+		}
+		values = new double[axisNames.length];
+		clear();
+	}
+
+	void clear() {
+		Arrays.fill(values, Double.NaN);
+	}
+
+	/**
+	 * Percentages are rounded down to two decimals, axes without debt are
+	 * left out.
+	 */
+	void set(int axis, double percentage) {
+		values[axis] = percentage > 0d ? Math.floor(percentage * 100.0) / 100
+				: Double.NaN;
+	}
+
+	String encode() {
+		buffer.setLength(0);
+		for (int i = 0; i < order.length; i++) {
+			double value = values[order[i]];
+			if (!Double.isNaN(value)) {
+				if (buffer.length() > 0) {
+					buffer.append(';');
+				}
+				buffer.append(prefixes[i]).append(value);
+			}
+		}
+		return buffer.toString();
+	}
+
+	Measure build() {
+		return new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_REPARTITION,
+				encode());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writing of the JSON reports of the plugin.
+ */
+final class Reports {
+
+	private static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
+
+	private Reports() {
+	}
+
+	static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < ' ') {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+	/**
+	 * Infinite and NaN values have no JSON representation.
+	 */
+	static void appendNumber(StringBuilder json, double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			json.append("null");
+		} else {
+			json.append(value);
+		}
+	}
+
+	static void write(File file, String report) {
+		Writer writer = null;
+		try {
+			file.getParentFile().mkdirs();
+			writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+			writer.write(report);
+		} catch (IOException e) {
+			LOG.warn("Unable to write the technical debt report " + file, e);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					LOG.warn("Unable to write the technical debt report "
+							+ file, e);
+				}
+			}
+		}
+	}
+}
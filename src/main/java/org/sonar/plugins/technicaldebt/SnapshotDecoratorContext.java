@@ -0,0 +1,211 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.Event;
+import org.sonar.api.batch.ViolationQuery;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasuresFilter;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Violation;
+import org.sonar.plugins.technicaldebt.axis.MeasureSnapshot;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Read-only context over the measures of one file taken from a snapshot.
+ * Only the axes that support snapshots are evaluated on it: they read their
+ * input metrics, which are all in the snapshot. Files have no children.
+ * Dependencies, violations and events are not part of the snapshot, reading
+ * them breaks the contract of
+ * {@link org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator#supportsSnapshot()}
+ * and fails so that the file is evaluated again on its real context. Writes
+ * are ignored but recorded, so that the axis making them is evaluated again
+ * on the real context too.
+ */
+final class SnapshotDecoratorContext implements DecoratorContext {
+
+	private final Project project;
+	private final MeasureSnapshot snapshot;
+	/** By column, updated in place from the row of every read */
+	private final Measure[] measures;
+	private Resource resource;
+	private int row;
+	private boolean written;
+
+	SnapshotDecoratorContext(Project project, MeasureSnapshot snapshot) {
+		this.project = project;
+		this.snapshot = snapshot;
+		Metric[] metrics = snapshot.getMetrics();
+		measures = new Measure[metrics.length];
+		for (int i = 0; i < metrics.length; i++) {
+			measures[i] = new Measure(metrics[i]);
+		}
+	}
+
+	SnapshotDecoratorContext reset(Resource resource, int row) {
+		this.resource = resource;
+		this.row = row;
+		written = false;
+		return this;
+	}
+
+	/**
+	 * Whether something was written since the last call.
+	 */
+	boolean resetWritten() {
+		boolean result = written;
+		written = false;
+		return result;
+	}
+
+	public Project getProject() {
+		return project;
+	}
+
+	public Resource getResource() {
+		return resource;
+	}
+
+	public Measure getMeasure(Metric metric) {
+		int column = snapshot.columnOf(metric);
+		if (column < 0) {
+			throw notInSnapshot("Metric " + metric.getKey());
+		}
+		return measureOf(column);
+	}
+
+	/**
+	 * The measure of the column, or null when it has neither value nor data:
+	 * axes can not tell both cases apart. Axes evaluated on snapshots keep no
+	 * measure between two reads, so a single instance per column is enough.
+	 */
+	private Measure measureOf(int column) {
+		double value = snapshot.getValue(row, column);
+		String data = snapshot.getData(row, column);
+		if (Double.isNaN(value) && data == null) {
+			return null;
+		}
+		return measures[column].setValue(Double.isNaN(value) ? null : value)
+				.setData(data);
+	}
+
+	public List<DecoratorContext> getChildren() {
+		return Collections.emptyList();
+	}
+
+	public <M> M getMeasures(MeasuresFilter<M> filter) {
+		List<Measure> found = Lists.newArrayList();
+		for (int column = 0; column < measures.length; column++) {
+			Measure measure = measureOf(column);
+			if (measure != null) {
+				found.add(measure);
+			}
+		}
+		return filter.filter(found);
+	}
+
+	public Collection<Measure> getChildrenMeasures(MeasuresFilter filter) {
+		return Collections.emptyList();
+	}
+
+	public Collection<Measure> getChildrenMeasures(Metric metric) {
+		return Collections.emptyList();
+	}
+
+	public Set<Dependency> getDependencies() {
+		throw notInSnapshot("Dependencies are");
+	}
+
+	public Collection<Dependency> getIncomingDependencies() {
+		throw notInSnapshot("Dependencies are");
+	}
+
+	public Collection<Dependency> getOutgoingDependencies() {
+		throw notInSnapshot("Dependencies are");
+	}
+
+	public List<Violation> getViolations(ViolationQuery violationQuery) {
+		throw notInSnapshot("Violations are");
+	}
+
+	public List<Violation> getViolations() {
+		throw notInSnapshot("Violations are");
+	}
+
+	public List<Event> getEvents() {
+		throw notInSnapshot("Events are");
+	}
+
+	private IllegalStateException notInSnapshot(String what) {
+		return new IllegalStateException(what
+				+ " not in the snapshot of the sensor measures of "
+				+ resource.getKey()
+				+ ", the axis reading them must not support snapshots");
+	}
+
+	// The snapshot is read-only, the debt is saved by the decorator
+
+	public DecoratorContext saveMeasure(Measure measure) {
+		written = true;
+		return this;
+	}
+
+	public DecoratorContext saveMeasure(Metric metric, Double value) {
+		written = true;
+		return this;
+	}
+
+	public Dependency saveDependency(Dependency dependency) {
+		written = true;
+		return dependency;
+	}
+
+	public DecoratorContext saveViolation(Violation violation, boolean force) {
+		written = true;
+		return this;
+	}
+
+	public DecoratorContext saveViolation(Violation violation) {
+		written = true;
+		return this;
+	}
+
+	public Event createEvent(String name, String description,
+			String category, Date date) {
+		written = true;
+		return null;
+	}
+
+	public void deleteEvent(Event event) {
+		written = true;
+	}
+}
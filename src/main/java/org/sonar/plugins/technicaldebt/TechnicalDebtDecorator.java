@@ -20,8 +20,12 @@
 
 package org.sonar.plugins.technicaldebt;
 
+import java.io.File;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,20 +33,25 @@ import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.SonarIndex;
 import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+import org.sonar.api.measures.MeasuresFilters;
 import org.sonar.api.measures.Metric;
-import org.sonar.api.measures.PropertiesBuilder;
+import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
 import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
-import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
-import org.sonar.plugins.technicaldebt.axis.ComplexityToCoverFetcher;
-import org.sonar.plugins.technicaldebt.axis.CoverageDebtCalculator;
-import org.sonar.plugins.technicaldebt.axis.DuplicationDebtCalculator;
-import org.sonar.plugins.technicaldebt.axis.NoCalculation;
-import org.sonar.plugins.technicaldebt.axis.ValueFetcher;
+import org.sonar.plugins.technicaldebt.axis.AxisRegistry;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Booleans;
 
 /**
  * {@inheritDoc}
@@ -50,26 +59,200 @@ import com.google.common.collect.Lists;
 public final class TechnicalDebtDecorator implements Decorator {
 
 	private List<AxisDebtCalculator> axisList;
-	private Settings settings;
+	private String[] axisNames;
+	private CostModel costModel;
+	private boolean rollup;
+	private Set<String> scopes;
+	private boolean derivesChildren;
+	/** By axis, whether parents sum the debt of their children */
+	private boolean[] rollsUp;
+	private boolean anyRollsUp;
+	private Set<String> languages;
+	private DebtCache cache;
+	/** By axis, whether its cached result can be reused */
+	private boolean[] cachedAxes;
+	private Metric[] cacheMetrics;
+	private boolean started;
+	private Metric[] inputMetrics;
+	private SonarIndex index;
+	private DebtPrecomputer precomputer;
+	private boolean precomputed;
+	private RepartitionEncoder repartition;
+	private DebtInstrumentation instrumentation;
+	private DebtHotspots hotspots;
+	private DebtScenarios scenarios;
+	private DebtExport export;
+	private Project project;
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public TechnicalDebtDecorator(Settings settings, Project project) {
-		this.settings = settings;
-		ValueFetcher complexityToCoverFetcher = new ComplexityToCoverFetcher();
-		axisList = Arrays.asList(new ComplexityDebtCalculator(settings), new CoverageDebtCalculator(settings,
-				complexityToCoverFetcher), new DuplicationDebtCalculator(
-				settings));
+	public TechnicalDebtDecorator(Settings settings, Project project,
+			SonarIndex index, AxisRegistry registry, CostModel costModel) {
+		this.costModel = costModel;
+		axisList = registry.getAxes();
+		axisNames = new String[axisList.size()];
+		for (int i = 0; i < axisNames.length; i++) {
+			axisNames[i] = axisList.get(i).getName();
+		}
+		repartition = new RepartitionEncoder(axisNames);
+		rollup = settings.getBoolean(TechnicalDebtPlugin.ROLLUP);
+		languages = Sets.newHashSet(settings
+				.getStringArray(TechnicalDebtPlugin.LANGUAGES));
+		scopes = Sets.newHashSet(settings
+				.getStringArray(TechnicalDebtPlugin.SCOPES));
+		derivesChildren = !scopes.contains(Scopes.DIRECTORY);
+		rollsUp = new boolean[axisNames.length];
+		Set<Metric> metrics = Sets.newLinkedHashSet();
+		for (int i = 0; i < rollsUp.length; i++) {
+			rollsUp[i] = axisList.get(i).rollsUp();
+			anyRollsUp |= rollsUp[i];
+			metrics.addAll(axisList.get(i).inputMetrics());
+		}
+		inputMetrics = metrics.toArray(new Metric[metrics.size()]);
+		if (settings.getBoolean(TechnicalDebtPlugin.CACHE)) {
+			initCache(settings, project);
+		}
+		if (settings.getBoolean(TechnicalDebtPlugin.INSTRUMENTATION)) {
+			instrumentation = new DebtInstrumentation(project.getKey(),
+					axisNames);
+		}
+		if (settings.getStringArray(TechnicalDebtPlugin.SCENARIOS).length > 0) {
+			scenarios = new DebtScenarios(settings, costModel, axisList,
+					axisNames);
+		}
+		String exportFormat = settings.getString(TechnicalDebtPlugin.EXPORT);
+		if (DebtExport.isFormat(exportFormat)) {
+			export = new DebtExport(exportFile(settings, project, exportFormat),
+					exportFormat, axisNames, costModel.getDailyRate());
+		}
+		if (instrumentation != null || scenarios != null || export != null) {
+			this.project = project;
+		}
+		int hotspotCount = settings.getInt(TechnicalDebtPlugin.HOTSPOTS);
+		if (hotspotCount > 0) {
+			hotspots = new DebtHotspots(axisNames, hotspotCount);
+		}
+		this.index = index;
+		if (index != null && settings.getBoolean(TechnicalDebtPlugin.PARALLEL)
+				&& DebtPrecomputer.supports(axisList)) {
+			int threads = settings.getInt(TechnicalDebtPlugin.PARALLEL_THREADS);
+			precomputer = new DebtPrecomputer(axisList, threads > 0 ? threads
+					: Runtime.getRuntime().availableProcessors(),
+					settings.getBoolean(TechnicalDebtPlugin.SNAPSHOT_OFF_HEAP));
+		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Only the axes that are functions of their input measures are cached, and
+	 * only their measures make the fingerprint of a file.
+	 */
+	private void initCache(Settings settings, Project project) {
+		cachedAxes = new boolean[axisList.size()];
+		Set<Metric> metrics = Sets.newLinkedHashSet();
+		for (int i = 0; i < cachedAxes.length; i++) {
+			AxisDebtCalculator axis = axisList.get(i);
+			cachedAxes[i] = axis.isCacheable();
+			if (cachedAxes[i]) {
+				metrics.addAll(axis.inputMetrics());
+			}
+		}
+		if (!Booleans.contains(cachedAxes, true)) {
+			return;
+		}
+		cacheMetrics = metrics.toArray(new Metric[metrics.size()]);
+		cache = new DebtCache(cacheFile(settings, project),
+				modelFingerprint(settings), axisNames.length);
+	}
+
+	private static File cacheFile(Settings settings, Project project) {
+		String path = settings.getString(TechnicalDebtPlugin.CACHE_PATH);
+		if (path != null && path.length() > 0) {
+			return moduleFile(path, project);
+		}
+		return new File(workingDirectory(project), "technicaldebt-cache.bin");
+	}
+
+	private static File exportFile(Settings settings, Project project,
+			String format) {
+		String path = settings.getString(TechnicalDebtPlugin.EXPORT_PATH);
+		if (path != null && path.length() > 0) {
+			return moduleFile(path, project);
+		}
+		return new File(workingDirectory(project), "technicaldebt-export."
+				+ DebtExport.extension(format));
+	}
+
+	/**
+	 * Every module of a multi-module build is decorated by its own decorator,
+	 * so a path shared by all of them gets the key of the module before its
+	 * extension: cache.bin becomes cache-group_module.bin.
+	 */
+	static File moduleFile(String path, Project project) {
+		if (project.getParent() == null && project.getModules().isEmpty()) {
+			return new File(path);
+		}
+		File file = new File(path);
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		String suffix = "-" + project.getKey().replaceAll("[^A-Za-z0-9._-]", "_");
+		name = dot > 0 ? name.substring(0, dot) + suffix + name.substring(dot)
+				: name + suffix;
+		return new File(file.getParentFile(), name);
+	}
+
+	private static File workingDirectory(Project project) {
+		return project.getFileSystem().getSonarWorkingDirectory();
+	}
+
+	/**
+	 * Changes whenever the costs, the axes or any of the settings they may
+	 * read change, in which case no cached result can be reused.
+	 */
+	private long modelFingerprint(Settings settings) {
+		long fingerprint = costModel.fingerprint();
+		for (String name : axisNames) {
+			fingerprint = DebtCache.mix(fingerprint, DebtCache.hash(name));
+		}
+		List<String> keys = Lists.newArrayList(settings
+				.getKeysStartingWith("technicaldebt."));
+		keys.addAll(settings.getKeysStartingWith("sonar.cxx."));
+		Collections.sort(keys);
+		for (String key : keys) {
+			fingerprint = DebtCache.mix(fingerprint, DebtCache.hash(key));
+			fingerprint = DebtCache.mix(fingerprint,
+					DebtCache.hash(String.valueOf(settings.getString(key))));
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Skips the modules on which no enabled axis can produce anything. The
+	 * measures do not exist yet when this is called, so modules are judged on
+	 * their language and their sources, and aggregators on their modules.
 	 */
 	public boolean shouldExecuteOnProject(Project project) {
-		return true;
+		return !axisList.isEmpty() && isApplicable(project);
 	}
 
+	private boolean isApplicable(Project project) {
+		if ((languages.isEmpty() || languages.contains(project
+				.getLanguageKey()))
+				&& !project.getFileSystem().getSourceDirs().isEmpty()) {
+			return true;
+		}
+		for (Project module : project.getModules()) {
+			if (isApplicable(module)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Only the metrics of the enabled axes, so that the sensors and
+	 * decorators of the other ones are not forced into the batch.
+	 */
 	@DependsUpon
 	public List<Metric> dependsOnMetrics() {
 		List<Metric> list = Lists.newLinkedList();
@@ -84,7 +267,10 @@ public final class TechnicalDebtDecorator implements Decorator {
 		return Arrays.asList(TechnicalDebtMetrics.TECHNICAL_DEBT,
 				TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS,
 				TechnicalDebtMetrics.TECHNICAL_DEBT_RATIO,
-				TechnicalDebtMetrics.TECHNICAL_DEBT_REPARTITION);
+				TechnicalDebtMetrics.TECHNICAL_DEBT_REPARTITION,
+				TechnicalDebtMetrics.TECHNICAL_DEBT_AXES,
+				TechnicalDebtMetrics.TECHNICAL_DEBT_SUMMARY,
+				TechnicalDebtMetrics.TECHNICAL_DEBT_HOTSPOTS);
 	}
 
 	public static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
@@ -93,44 +279,322 @@ public final class TechnicalDebtDecorator implements Decorator {
 	 * {@inheritDoc}
 	 */
 	public void decorate(Resource resource, DecoratorContext context) {
+		boolean persisted = scopes.contains(resource.getScope());
+		if (!persisted
+				&& !((rollup || anyRollsUp) && Scopes.isFile(resource))) {
+			// Derived by the parents when they need it
+			if (Scopes.isProject(resource)) {
+				finish();
+			}
+			return;
+		}
+		LOG.debug("Checkin resource {}", resource.getName());
+		long start = instrumentation != null ? System.nanoTime() : 0L;
+
+		if (!started) {
+			if (cache != null) {
+				cache.load();
+			}
+			if (instrumentation != null) {
+				instrumentation.register();
+			}
+			started = true;
+		}
+
+		// All the files of the module are evaluated at once, before the first
+		if (precomputer != null && !precomputed && Scopes.isFile(resource)) {
+			long precomputeStart = System.nanoTime();
+			precomputer.precompute(index, context.getProject());
+			precomputed = true;
+			if (instrumentation != null) {
+				instrumentation.precomputed(System.nanoTime()
+						- precomputeStart);
+			}
+		}
+
+		if (hotspots != null && Scopes.isProject(resource)) {
+			addModuleHotspots(context);
+		}
+
+		double sonarDebt;
+		if (rollup && !Scopes.isFile(resource)) {
+			sonarDebt = decorateFromChildren(resource, context);
+		} else {
+			sonarDebt = decorateFromMeasures(resource, context, persisted);
+		}
+
+		if (instrumentation != null) {
+			instrumentation.resourceDecorated(resource.getScope(),
+					System.nanoTime() - start, sonarDebt == 0.0);
+		}
+
+		// The project is decorated last
+		if (Scopes.isProject(resource)) {
+			finish();
+		}
+	}
+
+	private void finish() {
+		for (AxisDebtCalculator axis : axisList) {
+			axis.finish();
+		}
+		if (cache != null) {
+			cache.save();
+		}
+		if (instrumentation != null) {
+			instrumentation.write(new File(workingDirectory(project),
+					"technicaldebt-report.json"));
+			instrumentation.unregister();
+		}
+		if (export != null) {
+			export.close();
+		}
+		if (scenarios != null) {
+			scenarios.write(new File(workingDirectory(project),
+					"technicaldebt-scenarios.json"), project.getKey());
+		}
+	}
+
+	/**
+	 * Files of the scopes whose measures are not persisted only save their
+	 * debt vector, for their parents in rollup mode.
+	 */
+	private double decorateFromMeasures(Resource resource,
+			DecoratorContext context, boolean persisted) {
 		double sonarDebt = 0.0;
 		double denominatorDensity = 0.0;
-		PropertiesBuilder<String, Double> techDebtRepartition = new PropertiesBuilder<String, Double>(
-				TechnicalDebtMetrics.TECHNICAL_DEBT_REPARTITION);
 
-		LOG.debug("Checkin resource " + context.getResource().getName());
+		// Every axis is evaluated once, both loops below reuse its result
+		AxisDebt[] axisDebts = new AxisDebt[axisList.size()];
+
+		// Unchanged files reuse the results of the previous analysis
+		boolean cacheable = cache != null && Scopes.isFile(resource);
+		long fingerprint = 0L;
+		boolean cached = false;
+		if (cacheable) {
+			fingerprint = DebtCache.fingerprint(context, cacheMetrics);
+			cached = cache.lookup(resource.getKey(), fingerprint, axisDebts);
+			if (cached) {
+				// The other axes read more than their measures
+				for (int i = 0; i < axisDebts.length; i++) {
+					if (!cachedAxes[i]) {
+						axisDebts[i] = null;
+					}
+				}
+				if (instrumentation != null) {
+					instrumentation.resourceCached();
+				}
+			}
+		}
+		if (!cached && precomputer != null && Scopes.isFile(resource)) {
+			precomputer.lookup(resource, context, axisDebts);
+		}
+		if (anyRollsUp && !Scopes.isFile(resource)) {
+			DebtVector children = childrenVector(context);
+			for (int i = 0; i < axisDebts.length; i++) {
+				if (rollsUp[i]) {
+					axisDebts[i] = children.getAxisDebt(i);
+				}
+			}
+		}
+
 		// We calculate the total absolute debt and total maximum debt
-		for (AxisDebtCalculator axis : axisList) {
-			LOG.debug("Checkin axis " + axis.getName());
+		for (int i = 0; i < axisDebts.length; i++) {
+			if (axisDebts[i] == null) {
+				axisDebts[i] = evaluate(i, context);
+			}
+			if (axisDebts[i].isApplicable()) {
+				denominatorDensity += axisDebts[i].getPossibleDebt();
+				sonarDebt += axisDebts[i].getActualDebt();
+			} else if (instrumentation != null) {
+				instrumentation.axisNotApplicable(i);
+			}
+		}
+
+		if (cacheable) {
+			cache.store(resource.getKey(), fingerprint, axisDebts);
+		}
 
-			try {
-				denominatorDensity += axis.calculatePossibleDebt(context);
-				sonarDebt += axis.calculateActualDebt(context);
-			} catch (NoCalculation e) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("SonarDebt: {}", sonarDebt);
+			LOG.debug("DenominatorDensity: {}", denominatorDensity);
+		}
+
+		if (hotspots != null && Scopes.isFile(resource)) {
+			String key = DebtPrecomputer.keyOf(resource);
+			hotspots.offerTotal(key, sonarDebt);
+			for (int i = 0; i < axisDebts.length; i++) {
+				hotspots.offerAxis(i, key, axisDebts[i].getActualDebt());
 			}
 		}
 
-		LOG.debug("SonarDebt: " + sonarDebt);
-		LOG.debug("DenominatorDensity: " + denominatorDensity);
+		boolean evaluatesScenarios = scenarios != null
+				&& Scopes.isProject(resource);
+		boolean exported = export != null && persisted;
+		if (rollup || anyRollsUp || evaluatesScenarios || exported) {
+			DebtVector vector = new DebtVector(axisNames);
+			for (int i = 0; i < axisDebts.length; i++) {
+				vector.set(i, axisDebts[i]);
+			}
+			if (rollup || anyRollsUp) {
+				saveVector(context, vector);
+			}
+			if (evaluatesScenarios) {
+				scenarios.evaluate(vector);
+			}
+			if (exported) {
+				export.write(resource, vector);
+			}
+		}
+		if (!persisted) {
+			return sonarDebt;
+		}
 
 		// Then we calculate the % of each axis for this debt
-		for (AxisDebtCalculator axis : axisList) {
-			addToRepartition(techDebtRepartition, axis.getName(),
-					axis.calculateActualDebt(context) / sonarDebt * 100);
+		repartition.clear();
+		for (int i = 0; i < axisDebts.length; i++) {
+			repartition.set(i, axisDebts[i].getActualDebt() / sonarDebt * 100);
+		}
+		saveMeasures(context, sonarDebt, denominatorDensity);
+		return sonarDebt;
+	}
+
+	private AxisDebt evaluate(int axis, DecoratorContext context) {
+		AxisDebtCalculator calculator = axisList.get(axis);
+		LOG.debug("Checkin axis {}", calculator.getName());
+		if (instrumentation == null) {
+			return calculator.evaluate(context);
+		}
+		long start = System.nanoTime();
+		AxisDebt debt = calculator.evaluate(context);
+		instrumentation.axisEvaluated(axis, System.nanoTime() - start);
+		return debt;
+	}
+
+	/**
+	 * Sums the debt vectors of the children instead of evaluating the axes on
+	 * the aggregated measures of the resource, so that the debt of a
+	 * directory or a project is exactly the debt of its files.
+	 */
+	private double decorateFromChildren(Resource resource,
+			DecoratorContext context) {
+		DebtVector vector = childrenVector(context);
+
+		double sonarDebt = vector.getTotalActualDebt();
+		repartition.clear();
+		for (int i = 0; i < vector.size(); i++) {
+			repartition.set(i, vector.getActualDebt(i) / sonarDebt * 100);
 		}
 
-		double dailyRate = settings.getDouble(TechnicalDebtPlugin.DAILY_RATE);
+		saveVector(context, vector);
+		if (scenarios != null && Scopes.isProject(resource)) {
+			scenarios.evaluate(vector);
+		}
+		if (export != null) {
+			export.write(resource, vector);
+		}
+		saveMeasures(context, sonarDebt, vector.getTotalPossibleDebt());
+		return sonarDebt;
+	}
 
+	private DebtVector childrenVector(DecoratorContext context) {
+		DebtVector vector = new DebtVector(axisNames);
+		if (derivesChildren) {
+			addChildren(vector, context);
+		} else {
+			for (Measure child : context
+					.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)) {
+				if (MeasureUtils.hasData(child)) {
+					vector.add(child.getData());
+				}
+			}
+		}
+		return vector;
+	}
+
+	/**
+	 * Children of skipped scopes have no vector, their own children are
+	 * summed instead.
+	 */
+	private void addChildren(DebtVector vector, DecoratorContext context) {
+		for (DecoratorContext child : context.getChildren()) {
+			Measure measure = child
+					.getMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES);
+			if (MeasureUtils.hasData(measure)) {
+				vector.add(measure.getData());
+			} else if (!Scopes.isFile(child.getResource())) {
+				addChildren(vector, child);
+			}
+		}
+	}
+
+	private void saveMeasures(DecoratorContext context, double sonarDebt,
+			double denominatorDensity) {
+		double ratio = denominatorDensity > 0.0 ? sonarDebt
+				/ denominatorDensity * 100 : Double.NaN;
 		saveMeasure(context, TechnicalDebtMetrics.TECHNICAL_DEBT, sonarDebt
-				* dailyRate);
+				* costModel.getDailyRate());
 		saveMeasure(context, TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS,
 				sonarDebt);
 
-		if (denominatorDensity > 0.0) {
+		if (!Double.isNaN(ratio)) {
 			saveMeasure(context, TechnicalDebtMetrics.TECHNICAL_DEBT_RATIO,
-					sonarDebt / denominatorDensity * 100);
+					ratio);
+		}
+		Measure repartitionMeasure = repartition.build();
+		context.saveMeasure(repartitionMeasure);
+
+		if (Scopes.isProject(context.getResource())) {
+			saveSummary(context, repartitionMeasure.getData());
+		}
+	}
+
+	/**
+	 * The widget shows whether coverage and design measures exist, both are
+	 * fetched in a single call. The hotspots come along so that the widget
+	 * reads a single measure.
+	 */
+	private void saveSummary(DecoratorContext context, String repartitionData) {
+		boolean coverage = false;
+		boolean design = false;
+		Collection<Measure> measures = context.getMeasures(MeasuresFilters
+				.metrics(CoreMetrics.COVERAGE, CoreMetrics.LCOM4));
+		if (measures != null) {
+			for (Measure measure : measures) {
+				coverage |= CoreMetrics.COVERAGE.equals(measure.getMetric());
+				design |= CoreMetrics.LCOM4.equals(measure.getMetric());
+			}
 		}
-		context.saveMeasure(techDebtRepartition.build());
+		context.saveMeasure(new Measure(
+				TechnicalDebtMetrics.TECHNICAL_DEBT_SUMMARY, DebtSummary
+						.format(coverage, design, repartitionData,
+								hotspots != null ? hotspots.format() : "")));
+	}
+
+	/**
+	 * The hotspots of the modules are merged into the ones of their parent,
+	 * they reach the widget through the summary.
+	 */
+	private void addModuleHotspots(DecoratorContext context) {
+		for (Measure module : context
+				.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_HOTSPOTS)) {
+			if (MeasureUtils.hasData(module)) {
+				hotspots.add(module.getData());
+			}
+		}
+		if (!hotspots.isEmpty()) {
+			// Only the parent module reads it, no need to store it
+			context.saveMeasure(new Measure(
+					TechnicalDebtMetrics.TECHNICAL_DEBT_HOTSPOTS, hotspots
+							.format()).setPersistenceMode(PersistenceMode.MEMORY));
+		}
+	}
+
+	private void saveVector(DecoratorContext context, DebtVector vector) {
+		// Only the parents of the resource read it, no need to store it
+		context.saveMeasure(new Measure(
+				TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, vector.format())
+				.setPersistenceMode(PersistenceMode.MEMORY));
 	}
 
 	private void saveMeasure(DecoratorContext decoratorContext, Metric metric,
@@ -139,12 +603,4 @@ public final class TechnicalDebtDecorator implements Decorator {
 		decoratorContext.saveMeasure(metric, measure);
 		// }
 	}
-
-	private void addToRepartition(
-			PropertiesBuilder<String, Double> techDebtRepartition, String key,
-			double value) {
-		if (value > 0d) {
-			techDebtRepartition.add(key, Math.floor(value * 100.0) / 100);
-		}
-	}
 }
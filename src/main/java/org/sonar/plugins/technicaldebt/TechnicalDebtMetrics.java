@@ -60,6 +60,41 @@ public final class TechnicalDebtMetrics implements Metrics {
       .setDomain(CoreMetrics.DOMAIN_GENERAL)
       .create();
 
+  /**
+   * Debt of each axis, summed by the parents of a resource when the rollup mode is enabled.
+   */
+  public static final Metric TECHNICAL_DEBT_AXES = new Metric.Builder("technical_debt_axes", "Technical debt per axis", Metric.ValueType.DATA)
+      .setDescription("Actual and possible debt of each axis, in man days")
+      .setDirection(Metric.DIRECTION_NONE)
+      .setQualitative(false)
+      .setDomain(CoreMetrics.DOMAIN_GENERAL)
+      .setHidden(true)
+      .create();
+
+  /**
+   * Repartition, hotspots and available data shown by the dashboard widget next to the debt measures, saved on projects
+   * and modules so that it reads them from a single measure.
+   */
+  public static final Metric TECHNICAL_DEBT_SUMMARY = new Metric.Builder("technical_debt_summary", "Technical debt summary",
+      Metric.ValueType.DATA)
+      .setDescription("Repartition, hotspots and available data of the project")
+      .setDirection(Metric.DIRECTION_NONE)
+      .setQualitative(false)
+      .setDomain(CoreMetrics.DOMAIN_GENERAL)
+      .setHidden(true)
+      .create();
+
+  /**
+   * Files with the highest debt of a project, overall and on each axis.
+   */
+  public static final Metric TECHNICAL_DEBT_HOTSPOTS = new Metric.Builder("technical_debt_hotspots", "Technical debt hotspots",
+      Metric.ValueType.DATA)
+      .setDescription("Files with the highest debt, in man days")
+      .setDirection(Metric.DIRECTION_NONE)
+      .setQualitative(false)
+      .setDomain(CoreMetrics.DOMAIN_GENERAL)
+      .setHidden(true)
+      .create();
 
   /**
    * {@inheritDoc}
@@ -69,7 +104,10 @@ public final class TechnicalDebtMetrics implements Metrics {
         TECHNICAL_DEBT,
         TECHNICAL_DEBT_DAYS,
         TECHNICAL_DEBT_REPARTITION,
-        TECHNICAL_DEBT_RATIO
+        TECHNICAL_DEBT_RATIO,
+        TECHNICAL_DEBT_AXES,
+        TECHNICAL_DEBT_SUMMARY,
+        TECHNICAL_DEBT_HOTSPOTS
         );
   }
 }
@@ -24,9 +24,22 @@ import org.sonar.api.Properties;
 import org.sonar.api.Property;
 import org.sonar.api.PropertyType;
 import org.sonar.api.SonarPlugin;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.plugins.technicaldebt.axis.AxisRegistry;
+import org.sonar.plugins.technicaldebt.axis.CommentsDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityToCoverFetcher;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
+import org.sonar.plugins.technicaldebt.axis.CoverageDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DesignDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DuplicationDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DuplicationGroups;
+import org.sonar.plugins.technicaldebt.axis.SourceScanner;
+import org.sonar.plugins.technicaldebt.axis.ViolationsDebtCalculator;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 @Properties({
   @Property(
@@ -52,6 +65,216 @@ import java.util.List;
     defaultValue = "" + TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL,
     name = "Average time to cover complexity of one (in hours)",
     type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_CUT_EDGE,
+    defaultValue = "" + TechnicalDebtPlugin.COST_CUT_EDGE_DEFVAL,
+    name = "Average time to cut a dependency that closes a cycle between files or directories (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_SPLIT_COHESION,
+    defaultValue = "" + TechnicalDebtPlugin.COST_SPLIT_COHESION_DEFVAL,
+    name = "Average time to split a class whose LCOM4 is greater than 1 (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_UNCOMMENTED_LINE,
+    defaultValue = "" + TechnicalDebtPlugin.COST_UNCOMMENTED_LINE_DEFVAL,
+    name = "Average time to write one missing line of comment (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_BLOCKER_VIOLATION,
+    defaultValue = "" + TechnicalDebtPlugin.COST_BLOCKER_VIOLATION_DEFVAL,
+    name = "Average time to fix a blocker violation (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_CRITICAL_VIOLATION,
+    defaultValue = "" + TechnicalDebtPlugin.COST_CRITICAL_VIOLATION_DEFVAL,
+    name = "Average time to fix a critical violation (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_MAJOR_VIOLATION,
+    defaultValue = "" + TechnicalDebtPlugin.COST_MAJOR_VIOLATION_DEFVAL,
+    name = "Average time to fix a major violation (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_MINOR_VIOLATION,
+    defaultValue = "" + TechnicalDebtPlugin.COST_MINOR_VIOLATION_DEFVAL,
+    name = "Average time to fix a minor violation (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COST_INFO_VIOLATION,
+    defaultValue = "" + TechnicalDebtPlugin.COST_INFO_VIOLATION_DEFVAL,
+    name = "Average time to fix an info violation (in hours)",
+    type = PropertyType.FLOAT
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.DUPLICATION_PRECISE,
+    defaultValue = "" + TechnicalDebtPlugin.DUPLICATION_PRECISE_DEFVAL,
+    name = "Charge each group of duplicated blocks once",
+    description = "Reads the duplications data of the files instead of estimating the blocks from the density of duplicated lines. "
+      + "A group of blocks spread over several files is charged to the first file evaluated in any module, "
+      + "and the files are then evaluated one after the other.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COVERAGE_LINES,
+    defaultValue = "" + TechnicalDebtPlugin.COVERAGE_LINES_DEFVAL,
+    name = "Locate the uncovered complexity on the lines that are never hit",
+    description = "Reads the line hits of the files and the decision points of their sources instead of applying "
+      + "the coverage percentage to the whole complexity of the file.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.LANGUAGES,
+    defaultValue = TechnicalDebtPlugin.LANGUAGES_DEFVAL,
+    name = "Languages of the analysed modules",
+    description = "Comma-separated keys of the languages whose modules have a technical debt. "
+      + "Leave it empty to calculate the debt of every module.",
+    multiValues = true
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.SCOPES,
+    defaultValue = TechnicalDebtPlugin.SCOPES_DEFVAL,
+    name = "Scopes of the resources that get debt measures",
+    description = "Comma-separated among PRJ (projects and modules), DIR (directories) and FIL (files). "
+      + "In rollup mode, the debt of the skipped directories is still summed into their project.",
+    multiValues = true
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.HOTSPOTS,
+    defaultValue = "" + TechnicalDebtPlugin.HOTSPOTS_DEFVAL,
+    name = "Number of hotspots",
+    description = "Number of files with the highest debt listed by the widget, overall and on each axis. 0 lists none.",
+    type = PropertyType.INTEGER
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.FORMULAS,
+    name = "Axes defined by formulas",
+    description = "Comma-separated names of additional axes. The debt of an axis NAME in hours is given by the formulas "
+      + "technicaldebt.formula.NAME.actual and technicaldebt.formula.NAME.possible over metric keys, with + - * / and "
+      + "the functions min(a, b), max(a, b), over(value, threshold), under(value, threshold) and default(value, fallback). "
+      + "For instance over(function_complexity, 10) * 0.5.",
+    multiValues = true
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.SCENARIOS,
+    name = "What-if scenarios",
+    description = "Comma-separated names of alternative cost models evaluated along with the analysis. A scenario NAME "
+      + "overrides any cost with technicaldebt.scenario.NAME.<key>, for instance technicaldebt.scenario.NAME.dupli.blocks, "
+      + "and its debt is written to technicaldebt-scenarios.json in the working directory.",
+    multiValues = true
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.EXPORT,
+    name = "Export the debt of every resource",
+    description = "Format of a local file that receives one record per resource during the analysis, with its debt on "
+      + "each axis: ndjson or csv. Nothing is exported when empty.",
+    type = PropertyType.SINGLE_SELECT_LIST,
+    options = {"ndjson", "csv"}
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.EXPORT_PATH,
+    name = "Path of the debt export",
+    description = "Defaults to technicaldebt-export.ndjson or technicaldebt-export.csv in the working directory of the analysis. "
+      + "In a multi-module build, the key of each module is appended to the name of the file."
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.ROLLUP,
+    defaultValue = "" + TechnicalDebtPlugin.ROLLUP_DEFVAL,
+    name = "Sum the debt of the children of directories and projects",
+    description = "When enabled, the debt of a directory or a project is the sum of the debt of its files "
+      + "instead of being calculated again from its aggregated measures.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.CACHE,
+    defaultValue = "" + TechnicalDebtPlugin.CACHE_DEFVAL,
+    name = "Reuse the debt of unchanged files",
+    description = "Keeps the debt of every file in a local cache, so that files whose measures did not change "
+      + "since the previous analysis are not evaluated again.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.CACHE_PATH,
+    name = "Path of the debt cache",
+    description = "Defaults to technicaldebt-cache.bin in the working directory of the analysis. "
+      + "Set it when the working directory is cleaned between analyses. "
+      + "In a multi-module build, the key of each module is appended to the name of the file."
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.PARALLEL,
+    defaultValue = "" + TechnicalDebtPlugin.PARALLEL_DEFVAL,
+    name = "Evaluate the debt of the files in parallel",
+    description = "Evaluates the debt of all the files of a module on several threads before they are decorated. "
+      + "Only the axes reading measures of the sensors are evaluated ahead: the complexity axis and the formulas over such measures. "
+      + "The coverage, duplication, violations, design and comments axes are evaluated one file at a time.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.PARALLEL_THREADS,
+    defaultValue = "" + TechnicalDebtPlugin.PARALLEL_THREADS_DEFVAL,
+    name = "Number of threads evaluating the debt of the files",
+    description = "0 uses one thread per available processor.",
+    type = PropertyType.INTEGER
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.SNAPSHOT_OFF_HEAP,
+    defaultValue = "" + TechnicalDebtPlugin.SNAPSHOT_OFF_HEAP_DEFVAL,
+    name = "Keep the snapshot of the measures out of the heap",
+    description = "The measures of the files evaluated in parallel, their keys and the text of their distributions are "
+      + "stored in direct buffers instead of the heap, for modules with millions of files.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.INSTRUMENTATION,
+    defaultValue = "" + TechnicalDebtPlugin.INSTRUMENTATION_DEFVAL,
+    name = "Instrument the calculation of the debt",
+    description = "Times every axis and counts the evaluated resources. The figures are exposed through JMX during the "
+      + "analysis and written to technicaldebt-report.json in the working directory at its end.",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COMPLEXITY_AXIS_ENABLED,
+    defaultValue = "true",
+    name = "Calculate the debt of too complex methods",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COVERAGE_AXIS_ENABLED,
+    defaultValue = "true",
+    name = "Calculate the debt of uncovered code",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.DUPLICATION_AXIS_ENABLED,
+    defaultValue = "true",
+    name = "Calculate the debt of duplicated blocks",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.DESIGN_AXIS_ENABLED,
+    defaultValue = "true",
+    name = "Calculate the debt of dependency cycles and of classes lacking cohesion",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.VIOLATIONS_AXIS_ENABLED,
+    defaultValue = "true",
+    name = "Calculate the debt of violations",
+    type = PropertyType.BOOLEAN
+  ),
+  @Property(
+    key = TechnicalDebtPlugin.COMMENTS_AXIS_ENABLED,
+    defaultValue = "true",
+    name = "Calculate the debt of missing comments",
+    type = PropertyType.BOOLEAN
   )
 })
 public final class TechnicalDebtPlugin extends SonarPlugin {
@@ -67,6 +290,98 @@ public final class TechnicalDebtPlugin extends SonarPlugin {
   public static final String COST_UNCOVERED_COMPLEXITY = "technicaldebt.uncovered.complexity";
   public static final double COST_UNCOVERED_COMPLEXITY_DEFVAL = 1.5;
 
+  public static final String COST_CUT_EDGE = "technicaldebt.cut.edge";
+  public static final double COST_CUT_EDGE_DEFVAL = 4.0;
+
+  public static final String COST_SPLIT_COHESION = "technicaldebt.split.lcom4";
+  public static final double COST_SPLIT_COHESION_DEFVAL = 8.0;
+
+  public static final String COST_UNCOMMENTED_LINE = "technicaldebt.uncommented.line";
+  public static final double COST_UNCOMMENTED_LINE_DEFVAL = 0.05;
+
+  // See violationCostKey(RulePriority)
+  public static final String COST_BLOCKER_VIOLATION = "technicaldebt.violation.blocker";
+  public static final double COST_BLOCKER_VIOLATION_DEFVAL = 1.0;
+  public static final String COST_CRITICAL_VIOLATION = "technicaldebt.violation.critical";
+  public static final double COST_CRITICAL_VIOLATION_DEFVAL = 0.5;
+  public static final String COST_MAJOR_VIOLATION = "technicaldebt.violation.major";
+  public static final double COST_MAJOR_VIOLATION_DEFVAL = 0.1;
+  public static final String COST_MINOR_VIOLATION = "technicaldebt.violation.minor";
+  public static final double COST_MINOR_VIOLATION_DEFVAL = 0.1;
+  public static final String COST_INFO_VIOLATION = "technicaldebt.violation.info";
+  public static final double COST_INFO_VIOLATION_DEFVAL = 0.0;
+
+  public static final String DUPLICATION_PRECISE = "technicaldebt.duplication.precise";
+  public static final boolean DUPLICATION_PRECISE_DEFVAL = false;
+
+  public static final String COVERAGE_LINES = "technicaldebt.coverage.lines";
+  public static final boolean COVERAGE_LINES_DEFVAL = false;
+
+  public static final String LANGUAGES = "technicaldebt.languages";
+  public static final String LANGUAGES_DEFVAL = "c++";
+
+  public static final String SCOPES = "technicaldebt.scopes";
+  public static final String SCOPES_DEFVAL = "PRJ,DIR,FIL";
+
+  public static final String HOTSPOTS = "technicaldebt.hotspots";
+  public static final int HOTSPOTS_DEFVAL = 10;
+
+  public static final String FORMULAS = "technicaldebt.formulas";
+  public static final String FORMULA_PREFIX = "technicaldebt.formula.";
+
+  public static final String SCENARIOS = "technicaldebt.scenarios";
+  public static final String SCENARIO_PREFIX = "technicaldebt.scenario.";
+
+  public static final String EXPORT = "technicaldebt.export";
+  public static final String EXPORT_PATH = "technicaldebt.export.path";
+
+  public static final String ROLLUP = "technicaldebt.rollup";
+  public static final boolean ROLLUP_DEFVAL = false;
+
+  public static final String CACHE = "technicaldebt.cache";
+  public static final boolean CACHE_DEFVAL = false;
+
+  public static final String CACHE_PATH = "technicaldebt.cache.path";
+
+  public static final String PARALLEL = "technicaldebt.parallel";
+  public static final boolean PARALLEL_DEFVAL = false;
+
+  public static final String PARALLEL_THREADS = "technicaldebt.parallel.threads";
+  public static final int PARALLEL_THREADS_DEFVAL = 0;
+
+  public static final String SNAPSHOT_OFF_HEAP = "technicaldebt.snapshot.offheap";
+  public static final boolean SNAPSHOT_OFF_HEAP_DEFVAL = false;
+
+  public static final String INSTRUMENTATION = "technicaldebt.instrumentation";
+  public static final boolean INSTRUMENTATION_DEFVAL = false;
+
+  // See AxisRegistry.enabledKey(String)
+  public static final String COMPLEXITY_AXIS_ENABLED = "technicaldebt.axis.complexity.enabled";
+  public static final String COVERAGE_AXIS_ENABLED = "technicaldebt.axis.coverage.enabled";
+  public static final String DUPLICATION_AXIS_ENABLED = "technicaldebt.axis.duplication.enabled";
+  public static final String DESIGN_AXIS_ENABLED = "technicaldebt.axis.design.enabled";
+  public static final String VIOLATIONS_AXIS_ENABLED = "technicaldebt.axis.violations.enabled";
+  public static final String COMMENTS_AXIS_ENABLED = "technicaldebt.axis.comments.enabled";
+
+
+  public static String violationCostKey(RulePriority severity) {
+    return "technicaldebt.violation." + severity.name().toLowerCase(Locale.ENGLISH);
+  }
+
+  public static double violationCostDefault(RulePriority severity) {
+    switch (severity) {
+      case BLOCKER:
+        return COST_BLOCKER_VIOLATION_DEFVAL;
+      case CRITICAL:
+        return COST_CRITICAL_VIOLATION_DEFVAL;
+      case MAJOR:
+        return COST_MAJOR_VIOLATION_DEFVAL;
+      case MINOR:
+        return COST_MINOR_VIOLATION_DEFVAL;
+      default:
+        return COST_INFO_VIOLATION_DEFVAL;
+    }
+  }
 
   /**
    * {@inheritDoc}
@@ -74,6 +389,17 @@ public final class TechnicalDebtPlugin extends SonarPlugin {
   public List getExtensions() {
     return Arrays.asList(
         TechnicalDebtMetrics.class,
+        CostModel.class,
+        DuplicationGroups.class,
+        SourceScanner.class,
+        ComplexityToCoverFetcher.class,
+        ComplexityDebtCalculator.class,
+        CoverageDebtCalculator.class,
+        DuplicationDebtCalculator.class,
+        ViolationsDebtCalculator.class,
+        DesignDebtCalculator.class,
+        CommentsDebtCalculator.class,
+        AxisRegistry.class,
         TechnicalDebtDecorator.class,
         TechnicalDebtWidget.class
         );
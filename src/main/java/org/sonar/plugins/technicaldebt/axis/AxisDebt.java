@@ -0,0 +1,62 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+/**
+ * Result of evaluating one axis on one resource: the actual debt, the
+ * possible debt and whether the axis applies to the resource at all.
+ */
+public final class AxisDebt {
+
+	private final double actualDebt;
+	private final double possibleDebt;
+	private final boolean applicable;
+
+	private AxisDebt(double actualDebt, double possibleDebt, boolean applicable) {
+		this.actualDebt = actualDebt;
+		this.possibleDebt = possibleDebt;
+		this.applicable = applicable;
+	}
+
+	public static AxisDebt of(double actualDebt, double possibleDebt) {
+		return new AxisDebt(actualDebt, possibleDebt, true);
+	}
+
+	/**
+	 * The axis can not compute a possible debt for the resource, so its
+	 * actual debt is left out of the totals.
+	 */
+	public static AxisDebt notApplicable(double actualDebt) {
+		return new AxisDebt(actualDebt, 0.0, false);
+	}
+
+	public double getActualDebt() {
+		return actualDebt;
+	}
+
+	public double getPossibleDebt() {
+		return possibleDebt;
+	}
+
+	public boolean isApplicable() {
+		return applicable;
+	}
+}
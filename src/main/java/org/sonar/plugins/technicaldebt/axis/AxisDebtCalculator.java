@@ -20,25 +20,119 @@
 
 package org.sonar.plugins.technicaldebt.axis;
 
+import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.config.Settings;
 import org.sonar.api.measures.Metric;
 
 import java.util.List;
 
-public abstract class AxisDebtCalculator {
+/**
+ * One axis of the debt. Axes are batch extensions, every registered axis
+ * that is not disabled by the settings is evaluated by the decorator.
+ */
+public abstract class AxisDebtCalculator implements BatchExtension {
   protected Settings settings;
+  protected final CostModel costModel;
   public static final double HOURS_PER_DAY = 8.0;
 
+  /**
+   * Possible debt of a resource on which the axis does not apply.
+   */
+  public static final double NOT_APPLICABLE = Double.NaN;
+
   public AxisDebtCalculator(Settings settings) {
+    this(settings, new CostModel(settings));
+  }
+
+  public AxisDebtCalculator(Settings settings, CostModel costModel) {
     this.settings = settings;
+    this.costModel = costModel;
   }
 
   public abstract double calculateActualDebt(DecoratorContext context);
 
+  /**
+   * Returns {@link #NOT_APPLICABLE} when the axis does not apply to the
+   * resource. Axes written before this constant existed may still throw
+   * {@link NoCalculation}, {@link #evaluate(DecoratorContext)} handles both.
+   */
   public abstract double calculatePossibleDebt(DecoratorContext context) throws NoCalculation;
 
+  /**
+   * Evaluates the axis once for the resource of the context. Axes whose actual
+   * and possible debt read the same measures should override it so that those
+   * measures are fetched only once.
+   */
+  public AxisDebt evaluate(DecoratorContext context) {
+    double actualDebt = calculateActualDebt(context);
+    double possibleDebt;
+    try {
+      possibleDebt = calculatePossibleDebt(context);
+    } catch (NoCalculation e) {
+      possibleDebt = NOT_APPLICABLE;
+    }
+    return isApplicable(possibleDebt) ? AxisDebt.of(actualDebt, possibleDebt) : AxisDebt.notApplicable(actualDebt);
+  }
+
+  public static boolean isApplicable(double possibleDebt) {
+    return !Double.isNaN(possibleDebt);
+  }
+
   public abstract List<Metric> dependsOn();
 
+  /**
+   * All the metrics read by {@link #evaluate(DecoratorContext)}. As long as
+   * they keep their values, the result of the axis on a resource does not
+   * change. Axes reading more than {@link #dependsOn()} must override it.
+   */
+  public List<Metric> inputMetrics() {
+    return dependsOn();
+  }
+
+  /**
+   * Whether {@link #evaluate(DecoratorContext)} only reads {@link #inputMetrics()}
+   * from the context and keeps no state between calls, so that it can run on a
+   * snapshot of the measures from any thread.
+   */
+  public boolean supportsSnapshot() {
+    return false;
+  }
+
+  /**
+   * Whether the result of the axis on a file can be reused by the next
+   * analysis as long as its {@link #inputMetrics()} keep their values. Axes
+   * reading sources, the dependency graph or state shared between files must
+   * not be cached.
+   */
+  public boolean isCacheable() {
+    return supportsSnapshot();
+  }
+
+  /**
+   * Whether the debt of a directory or a project is the sum of the debt of
+   * its children. The decorator then adds up the debt saved on the children
+   * instead of evaluating the axis, which is only evaluated on files.
+   */
+  public boolean rollsUp() {
+    return false;
+  }
+
+  /**
+   * The cost of the model that both the actual and the possible debt of the
+   * axis are proportional to, so that they can be scaled to another cost
+   * model without evaluating the axis again. NaN when there is none.
+   */
+  public double linearCost(CostModel model) {
+    return Double.NaN;
+  }
+
+  /**
+   * Called once the project is decorated, to release what the axis kept of
+   * its last resources.
+   */
+  public void finish() {
+  }
+
   public abstract String getName();
 }
@@ -0,0 +1,96 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.MetricFinder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The axes registered as extensions, by this plugin or by others, and the
+ * axes defined by formulas that are enabled by the settings. An axis named "Foo" is disabled by setting
+ * technicaldebt.axis.foo.enabled to false.
+ */
+public final class AxisRegistry implements BatchExtension {
+
+	private static final String PREFIX = "technicaldebt.axis.";
+	private static final String SUFFIX = ".enabled";
+
+	private final List<AxisDebtCalculator> axes;
+
+	/**
+	 * The axes defined by formulas in the settings come after the registered
+	 * ones.
+	 */
+	public AxisRegistry(Settings settings, CostModel costModel,
+			MetricFinder metricFinder, AxisDebtCalculator[] registered) {
+		List<AxisDebtCalculator> all = Lists.newArrayList(registered);
+		if (metricFinder != null) {
+			all.addAll(FormulaDebtCalculator.fromSettings(settings, costModel,
+					metricFinder));
+		}
+		List<AxisDebtCalculator> enabled = Lists.newArrayList();
+		for (AxisDebtCalculator axis : all) {
+			if (isEnabled(settings, axis.getName())) {
+				enabled.add(axis);
+			}
+		}
+		axes = Collections.unmodifiableList(enabled);
+	}
+
+	/**
+	 * Used when no axis is registered.
+	 */
+	public AxisRegistry(Settings settings, CostModel costModel,
+			MetricFinder metricFinder) {
+		this(settings, costModel, metricFinder, new AxisDebtCalculator[0]);
+	}
+
+	public AxisRegistry(Settings settings, AxisDebtCalculator[] registered) {
+		this(settings, null, null, registered);
+	}
+
+	public AxisRegistry(Settings settings) {
+		this(settings, new AxisDebtCalculator[0]);
+	}
+
+	public static String enabledKey(String axisName) {
+		return PREFIX + axisName.toLowerCase(Locale.ENGLISH) + SUFFIX;
+	}
+
+	private static boolean isEnabled(Settings settings, String axisName) {
+		String key = enabledKey(axisName);
+		return !settings.hasKey(key) || settings.getBoolean(key);
+	}
+
+	/**
+	 * The enabled axes, in the order of their registration.
+	 */
+	public List<AxisDebtCalculator> getAxes() {
+		return axes;
+	}
+}
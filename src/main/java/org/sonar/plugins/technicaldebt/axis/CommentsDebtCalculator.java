@@ -0,0 +1,198 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Scopes;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+/**
+ * Debt of the comments: the lines of comments to write so that the density
+ * of comments reaches its target.
+ * 
+ * When the comments or the lines of code are not measured, they are counted
+ * by scanning the sources of the files. Directories and projects are
+ * evaluated from their aggregated measures, or in rollup mode get the sum of
+ * the debt of their files, scanned or not.
+ */
+public final class CommentsDebtCalculator extends AxisDebtCalculator {
+
+	public static final double COMMENT_DENSITY_TARGET = 0.25;
+
+	private static final List<Metric> INPUT_METRICS = Collections
+			.unmodifiableList(Arrays.asList(CoreMetrics.COMMENT_LINES,
+					CoreMetrics.NCLOC));
+
+	private static final int CODE = 0;
+	private static final int COMMENTS = 1;
+
+	private final SourceScanner scanner;
+	private final boolean rollup;
+	/** Whether the coverage axis reads the decisions of the same pass */
+	private final boolean countDecisions;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public CommentsDebtCalculator(Settings settings) {
+		this(settings, new CostModel(settings));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public CommentsDebtCalculator(Settings settings, CostModel costModel) {
+		this(settings, costModel, new SourceScanner());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public CommentsDebtCalculator(Settings settings, CostModel costModel,
+			SourceScanner scanner) {
+		super(settings, costModel);
+		this.scanner = scanner;
+		rollup = settings != null
+				&& settings.getBoolean(TechnicalDebtPlugin.ROLLUP);
+		countDecisions = settings != null
+				&& settings.getBoolean(TechnicalDebtPlugin.COVERAGE_LINES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculateActualDebt(DecoratorContext context) {
+		return evaluate(context).getActualDebt();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		AxisDebt debt = evaluate(context);
+		return debt.isApplicable() ? debt.getPossibleDebt() : NOT_APPLICABLE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public AxisDebt evaluate(DecoratorContext context) {
+		Measure comments = context.getMeasure(CoreMetrics.COMMENT_LINES);
+		Measure ncloc = context.getMeasure(CoreMetrics.NCLOC);
+
+		double commentLines;
+		double codeLines;
+		if (MeasureUtils.hasValue(comments) && MeasureUtils.hasValue(ncloc)) {
+			commentLines = comments.getValue();
+			codeLines = ncloc.getValue();
+		} else {
+			int[] lines = countLines(context);
+			if (lines == null) {
+				return AxisDebt.notApplicable(0.0);
+			}
+			commentLines = MeasureUtils.hasValue(comments) ? comments
+					.getValue() : lines[COMMENTS];
+			codeLines = MeasureUtils.hasValue(ncloc) ? ncloc.getValue()
+					: lines[CODE];
+		}
+		if (codeLines <= 0.0) {
+			return AxisDebt.notApplicable(0.0);
+		}
+
+		// Density is comments / (comments + code)
+		double target = COMMENT_DENSITY_TARGET
+				/ (1 - COMMENT_DENSITY_TARGET) * codeLines;
+		double missing = target - commentLines;
+
+		return AxisDebt.of((missing > 0.0 ? missing : 0.0)
+				* costModel.getUncommentedLineCost(),
+				target * costModel.getUncommentedLineCost());
+	}
+
+	/**
+	 * Lines of a file, or null when it is not a file or when its source can
+	 * not be found.
+	 */
+	private int[] countLines(DecoratorContext context) {
+		if (!Scopes.isFile(context.getResource())) {
+			return null;
+		}
+		File source = SourceScanner.sourceOf(context);
+		if (source == null || !scanner.scan(source, countDecisions)) {
+			return null;
+		}
+		return new int[] { scanner.getCodeLines(), scanner.getCommentLines() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Metric> dependsOn() {
+		return INPUT_METRICS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double linearCost(CostModel model) {
+		return model.getUncommentedLineCost();
+	}
+
+	/**
+	 * Sums the debt of the files in rollup mode only, so that the files out
+	 * of the scopes are not decorated for nothing when the comments are
+	 * measured.
+	 */
+	public boolean rollsUp() {
+		return rollup;
+	}
+
+	/**
+	 * The sources are read from the decorator thread.
+	 */
+	public boolean supportsSnapshot() {
+		return false;
+	}
+
+	/**
+	 * Scanned sources may change while the measures do not.
+	 */
+	public boolean isCacheable() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getName() {
+		return "Comments";
+	}
+}
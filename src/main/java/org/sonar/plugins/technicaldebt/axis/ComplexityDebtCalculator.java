@@ -31,7 +31,6 @@ import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.measures.Metric;
 import org.sonar.plugins.cxx.cppncss.CxxCppNcssSensor;
 import org.sonar.plugins.cxx.distance.DistanceMetrics;
-import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
 
 /**
  * {@inheritDoc}
@@ -41,12 +40,46 @@ public final class ComplexityDebtCalculator extends AxisDebtCalculator {
 	private int maxComplexityOfFile;
 
 	public ComplexityDebtCalculator(Settings settings) {
-		super(settings);
+		this(settings, new CostModel(settings));
+	}
+
+	public ComplexityDebtCalculator(Settings settings, CostModel costModel) {
+		super(settings, costModel);
 		maxComplexityOfFile = CxxCppNcssSensor.getParam(settings,
 				CxxCppNcssSensor.DEFAULT_MAX_COMPLEXITY,
 				CxxCppNcssSensor.FUNCTION_COMPLEXITY);
 	}
 
+	/**
+	 * Average complexity above the threshold of the functions of the range
+	 * [bottom, top[, assumed to be evenly spread between its limits.
+	 */
+	static double rangeOverrun(int bottom, int top, int threshold) {
+		if (top <= bottom) {
+			return Math.max(0, bottom - threshold);
+		}
+		int first = Math.max(bottom, threshold + 1);
+		if (first >= top) {
+			return 0.0;
+		}
+		double overrun = (top - first)
+				* ((first - threshold) + (top - 1 - threshold)) / 2.0;
+		return overrun / (top - bottom);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public AxisDebt evaluate(DecoratorContext context) {
+		double actualDebt = calculateActualDebt(context);
+		double possibleDebt = calculatePossibleDebt(context);
+		if (!isApplicable(possibleDebt)) {
+			return AxisDebt.notApplicable(actualDebt);
+		}
+		// The distance to the threshold may exceed the estimated overrun
+		return AxisDebt.of(actualDebt, Math.max(actualDebt, possibleDebt));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -58,34 +91,125 @@ public final class ComplexityDebtCalculator extends AxisDebtCalculator {
 			return 0.0;
 		}
 
-		return complexity.getValue()
-				* settings
-						.getDouble(TechnicalDebtPlugin.COST_METHOD_COMPLEXITY)
-				/ HOURS_PER_DAY;
+		return complexity.getValue() * costModel.getMethodComplexityCost();
 	}
 
-	public double calculatePossibleDebt(DecoratorContext context)
-			throws NoCalculation {
+	/**
+	 * The axis only applies when some complexity is above the threshold,
+	 * whether it comes from the distribution or from the file.
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		double complexityOverrun;
 		Measure complexity = context.getMeasure(CoreMetrics.COMPLEXITY);
+		Measure distribution = context
+				.getMeasure(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
+		if (MeasureUtils.hasData(distribution)) {
+			complexityOverrun = overrun(distribution.getData(), MeasureUtils
+					.hasValue(complexity) ? complexity.getValue() : Double.NaN);
+		} else {
+			// Without distribution the file is compared to the threshold of a
+			// function
+			if (!MeasureUtils.hasValue(complexity)) {
+				return NOT_APPLICABLE;
+			}
+			complexityOverrun = complexity.getValue() - maxComplexityOfFile;
+		}
 
-		if (!MeasureUtils.hasValue(complexity)) {
-			throw new NoCalculation();
+		if (complexityOverrun <= 0.0) {
+			return NOT_APPLICABLE;
 		}
 
-		double complexityOverrun = complexity.getValue() - maxComplexityOfFile;
+		return complexityOverrun * costModel.getMethodComplexityCost();
+	}
 
-		if (complexityOverrun < 0.0) {
-			throw new NoCalculation();
+	/**
+	 * Complexity above the threshold of the functions of a distribution such
+	 * as 1=10;2=4;12=1, read in place. Each range ends at the bottom limit of
+	 * the next one. The last range has no top limit: its functions share the
+	 * complexity of the file left by the other ranges, and are at least at
+	 * its bottom limit.
+	 * 
+	 * @param complexity
+	 *            complexity of the file, NaN when unknown
+	 */
+	double overrun(String distribution, double complexity) {
+		double overrun = 0.0;
+		double boundedComplexity = 0.0;
+		int length = distribution.length();
+		int i = 0;
+		int bottom = 0;
+		double previousCount = 0.0;
+		while (i < length) {
+			// Bottom limit, whose fraction can only be .0
+			int limit = 0;
+			boolean fraction = false;
+			char c;
+			while (i < length && (c = distribution.charAt(i)) != '=') {
+				if (c == '.') {
+					fraction = true;
+				} else if (!fraction && c >= '0' && c <= '9') {
+					limit = limit * 10 + c - '0';
+				}
+				i++;
+			}
+			i++;
+
+			double count = 0.0;
+			double scale = 0.0;
+			while (i < length && (c = distribution.charAt(i)) != ';') {
+				if (c == '.') {
+					scale = 1.0;
+				} else if (c >= '0' && c <= '9') {
+					if (scale > 0.0) {
+						scale /= 10;
+						count += scale * (c - '0');
+					} else {
+						count = count * 10 + c - '0';
+					}
+				}
+				i++;
+			}
+			i++;
+
+			if (previousCount > 0.0) {
+				overrun += previousCount
+						* rangeOverrun(bottom, limit, maxComplexityOfFile);
+				boundedComplexity += previousCount
+						* (bottom + Math.max(bottom, limit - 1)) / 2.0;
+			}
+			bottom = limit;
+			previousCount = count;
 		}
-
-		return complexityOverrun
-				* settings
-						.getDouble(TechnicalDebtPlugin.COST_METHOD_COMPLEXITY)
-				/ HOURS_PER_DAY;
+		if (previousCount <= 0.0) {
+			return overrun;
+		}
+		double lastComplexity = bottom;
+		if (!Double.isNaN(complexity)) {
+			lastComplexity = Math.max(bottom, (complexity - boundedComplexity)
+					/ previousCount);
+		}
+		return overrun + previousCount
+				* Math.max(0.0, lastComplexity - maxComplexityOfFile);
 	}
 
 	public List<Metric> dependsOn() {
-		return Arrays.asList(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH);
+		return Arrays.asList(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH,
+				CoreMetrics.COMPLEXITY,
+				CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
+	}
+
+	public List<Metric> inputMetrics() {
+		return Arrays.asList(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH,
+				CoreMetrics.COMPLEXITY,
+				CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
+	}
+
+	public double linearCost(CostModel model) {
+		return model.getMethodComplexityCost();
+	}
+
+	public boolean supportsSnapshot() {
+		return true;
 	}
 
 	public String getName() {
@@ -19,31 +19,33 @@
  */
 package org.sonar.plugins.technicaldebt.axis;
 
+import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.Measure;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.plugins.cxx.coverage.NoCoverageMetrics;
 
-public class ComplexityToCoverFetcher implements ValueFetcher {
-
-	public double getValue(DecoratorContext context) throws NoCalculation {
-
-		Measure complexityToBeCovered = context
-				.getMeasure(CoreMetrics.COMPLEXITY);
-		if (!MeasureUtils.hasValue(complexityToBeCovered)) {
-			throw new NoCalculation();
-		}
+/**
+ * Complexity of the code that can be covered: the complexity of the resource
+ * less its complexity excluded from coverage. The value is fetched
+ * once per resource and shared by the calculations of the coverage axis.
+ */
+public class ComplexityToCoverFetcher implements ValueFetcher, BatchExtension {
 
-		double complexityValue = complexityToBeCovered.getValue();
+	private final MemoizingValueFetcher fetcher = new MemoizingValueFetcher(
+			ValueFetchers.difference(ValueFetchers
+					.measure(CoreMetrics.COMPLEXITY), ValueFetchers.fallback(
+					ValueFetchers.measure(NoCoverageMetrics.NOT_COVERED_COMPLEXITY),
+					ValueFetchers.constant(0.0))));
 
-		Measure notCoveredComplexityMeasure = context
-				.getMeasure(NoCoverageMetrics.NOT_COVERED_COMPLEXITY);
-		if (MeasureUtils.hasValue(notCoveredComplexityMeasure)) {
-			complexityValue -= notCoveredComplexityMeasure.getValue();
-		}
+	public double getValue(DecoratorContext context) throws NoCalculation {
+		return fetcher.getValue(context);
+	}
 
-		return complexityValue;
+	/**
+	 * @see MemoizingValueFetcher#clear()
+	 */
+	public void clear() {
+		fetcher.clear();
 	}
 
 }
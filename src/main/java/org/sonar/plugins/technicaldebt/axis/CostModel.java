@@ -0,0 +1,189 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.config.Settings;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+/**
+ * Snapshot of the cost settings, read once per analysis. Every cost factor
+ * is already converted from hours to man days, so that axes only have to
+ * multiply it by the amount of work to do.
+ */
+public final class CostModel implements BatchExtension {
+
+	private final double dailyRate;
+	private final double methodComplexityCost;
+	private final double duplicatedBlockCost;
+	private final double uncoveredComplexityCost;
+	private final double cutEdgeCost;
+	private final double splitCohesionCost;
+	private final double uncommentedLineCost;
+	/** By ordinal of the severity */
+	private final double[] violationCosts = new double[RulePriority
+			.values().length];
+
+	public CostModel(Settings settings) {
+		this(settings, null);
+	}
+
+	private CostModel(Settings settings, String scenario) {
+		dailyRate = getDouble(settings, scenario,
+				TechnicalDebtPlugin.DAILY_RATE,
+				TechnicalDebtPlugin.DAILY_RATE_DEFVAL);
+		methodComplexityCost = getDouble(settings, scenario,
+				TechnicalDebtPlugin.COST_METHOD_COMPLEXITY,
+				TechnicalDebtPlugin.COST_METHOD_COMPLEXITY_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		duplicatedBlockCost = getDouble(settings, scenario,
+				TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS,
+				TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		uncoveredComplexityCost = getDouble(settings, scenario,
+				TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY,
+				TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		cutEdgeCost = getDouble(settings, scenario,
+				TechnicalDebtPlugin.COST_CUT_EDGE,
+				TechnicalDebtPlugin.COST_CUT_EDGE_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		splitCohesionCost = getDouble(settings, scenario,
+				TechnicalDebtPlugin.COST_SPLIT_COHESION,
+				TechnicalDebtPlugin.COST_SPLIT_COHESION_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		uncommentedLineCost = getDouble(settings, scenario,
+				TechnicalDebtPlugin.COST_UNCOMMENTED_LINE,
+				TechnicalDebtPlugin.COST_UNCOMMENTED_LINE_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		for (RulePriority severity : RulePriority.values()) {
+			violationCosts[severity.ordinal()] = getDouble(settings, scenario,
+					TechnicalDebtPlugin.violationCostKey(severity),
+					TechnicalDebtPlugin.violationCostDefault(severity))
+					/ AxisDebtCalculator.HOURS_PER_DAY;
+		}
+	}
+
+	/**
+	 * The costs of a what-if scenario: technicaldebt.scenario.NAME.dupli.blocks
+	 * overrides technicaldebt.dupli.blocks and so on, the costs that are not
+	 * overridden are the ones of the analysis.
+	 */
+	public static CostModel scenario(Settings settings, String name) {
+		return new CostModel(settings, name);
+	}
+
+	private static double getDouble(Settings settings, String scenario,
+			String key, double defaultValue) {
+		if (scenario != null) {
+			Double value = settings.getDouble(scenarioKey(scenario, key));
+			if (value != null) {
+				return value;
+			}
+		}
+		Double value = settings.getDouble(key);
+		return value != null ? value : defaultValue;
+	}
+
+	public static String scenarioKey(String scenario, String key) {
+		return TechnicalDebtPlugin.SCENARIO_PREFIX + scenario + '.'
+				+ key.substring(key.indexOf('.') + 1);
+	}
+
+	/**
+	 * Changes whenever one of the costs changes.
+	 */
+	public long fingerprint() {
+		long fingerprint = Double.doubleToLongBits(dailyRate);
+		fingerprint = 31 * fingerprint
+				+ Double.doubleToLongBits(methodComplexityCost);
+		fingerprint = 31 * fingerprint
+				+ Double.doubleToLongBits(duplicatedBlockCost);
+		fingerprint = 31 * fingerprint
+				+ Double.doubleToLongBits(uncoveredComplexityCost);
+		fingerprint = 31 * fingerprint + Double.doubleToLongBits(cutEdgeCost);
+		fingerprint = 31 * fingerprint
+				+ Double.doubleToLongBits(splitCohesionCost);
+		fingerprint = 31 * fingerprint
+				+ Double.doubleToLongBits(uncommentedLineCost);
+		for (double cost : violationCosts) {
+			fingerprint = 31 * fingerprint + Double.doubleToLongBits(cost);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Daily rate of a developer, in $.
+	 */
+	public double getDailyRate() {
+		return dailyRate;
+	}
+
+	/**
+	 * Man days to remove one point of complexity from a method.
+	 */
+	public double getMethodComplexityCost() {
+		return methodComplexityCost;
+	}
+
+	/**
+	 * Man days to fix one duplicated block.
+	 */
+	public double getDuplicatedBlockCost() {
+		return duplicatedBlockCost;
+	}
+
+	/**
+	 * Man days to cover one point of complexity.
+	 */
+	public double getUncoveredComplexityCost() {
+		return uncoveredComplexityCost;
+	}
+
+	/**
+	 * Man days to cut one dependency that closes a cycle.
+	 */
+	public double getCutEdgeCost() {
+		return cutEdgeCost;
+	}
+
+	/**
+	 * Man days to split a class or file in two cohesive parts.
+	 */
+	public double getSplitCohesionCost() {
+		return splitCohesionCost;
+	}
+
+	/**
+	 * Man days to write one missing line of comment.
+	 */
+	public double getUncommentedLineCost() {
+		return uncommentedLineCost;
+	}
+
+	/**
+	 * Man days to fix one violation of the severity.
+	 */
+	public double getViolationCost(RulePriority severity) {
+		return violationCosts[severity.ordinal()];
+	}
+}
@@ -26,9 +26,11 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Scopes;
 import org.sonar.plugins.cxx.coverage.NoCoverageMetrics;
 import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -38,73 +40,285 @@ import java.util.List;
 public final class CoverageDebtCalculator extends AxisDebtCalculator {
 
 	public static final double COVERAGE_TARGET = 0.8;
+	private static final int COMPLEXITY = 0;
+	private static final int UNCOVERED = 1;
+
 	private ValueFetcher complexityFetcher;
+	/** Null unless the uncovered complexity is located by line */
+	private final LineHits lineHits;
+	private final SourceScanner scanner;
+	/** Complexity of the last file evaluated by line */
+	private final double[] fileComplexity = new double[2];
+	/** Debt of the last file evaluated by line, read by both debts */
+	private String lastKey;
+	private AxisDebt lastDebt;
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public CoverageDebtCalculator(Settings settings, ValueFetcher fetcher) {
-		super(settings);
+		this(settings, new CostModel(settings), fetcher);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public CoverageDebtCalculator(Settings settings, CostModel costModel,
+			ValueFetcher fetcher) {
+		this(settings, costModel, fetcher, new SourceScanner());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public CoverageDebtCalculator(Settings settings, CostModel costModel,
+			ValueFetcher fetcher, SourceScanner scanner) {
+		super(settings, costModel);
+		this.scanner = scanner;
 
 		this.complexityFetcher = fetcher;
+		boolean byLine = settings != null
+				&& settings.getBoolean(TechnicalDebtPlugin.COVERAGE_LINES);
+		lineHits = byLine ? new LineHits() : null;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public double calculateActualDebt(DecoratorContext context) {
+		if (lineHits != null) {
+			return evaluate(context).getActualDebt();
+		}
 		Measure coverage = context.getMeasure(CoreMetrics.COVERAGE);
 
 		if (!MeasureUtils.hasValue(coverage)) {
 			return 0.0;
 		}
 
-		double complexity;
-		try {
-			complexity = complexityFetcher.getValue(context);
-		} catch (NoCalculation e) {
+		double complexity = fetchComplexity(context);
+		if (Double.isNaN(complexity)) {
 			return 0.0;
 		}
 
-		// It is not reasonable to have an objective at 100%, so target is 80%
-		// for coverage
-		double gap = (COVERAGE_TARGET - coverage.getValue() / 100) * complexity;
+		return actualDebt(coverage.getValue(), complexity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		if (lineHits != null) {
+			AxisDebt debt = evaluate(context);
+			return debt.isApplicable() ? debt.getPossibleDebt()
+					: NOT_APPLICABLE;
+		}
+		Measure coverage = context.getMeasure(CoreMetrics.COVERAGE);
+
+		if (!MeasureUtils.hasValue(coverage)) {
+			return NOT_APPLICABLE;
+		}
+
+		double complexity = fetchComplexity(context);
+		if (Double.isNaN(complexity)) {
+			return NOT_APPLICABLE;
+		}
 
-		return (gap > 0.0 ? gap : 0.0)
-				* settings
-						.getDouble(TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY)
-				/ HOURS_PER_DAY;
+		return possibleDebt(complexity);
 	}
 
 	/**
 	 * {@inheritDoc}
-	 * 
-	 * @throws NoCalculation
 	 */
-	public double calculatePossibleDebt(DecoratorContext context)
-			throws NoCalculation {
+	public AxisDebt evaluate(DecoratorContext context) {
+		if (lineHits != null) {
+			return evaluateByLine(context);
+		}
 		Measure coverage = context.getMeasure(CoreMetrics.COVERAGE);
 
 		if (!MeasureUtils.hasValue(coverage)) {
-			throw new NoCalculation();
+			return AxisDebt.notApplicable(0.0);
+		}
+
+		double complexity = fetchComplexity(context);
+		if (Double.isNaN(complexity)) {
+			return AxisDebt.notApplicable(0.0);
+		}
+
+		return AxisDebt.of(actualDebt(coverage.getValue(), complexity),
+				possibleDebt(complexity));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void finish() {
+		lastKey = null;
+		lastDebt = null;
+		if (complexityFetcher instanceof ComplexityToCoverFetcher) {
+			((ComplexityToCoverFetcher) complexityFetcher).clear();
+		}
+	}
+
+	private double fetchComplexity(DecoratorContext context) {
+		try {
+			return complexityFetcher.getValue(context);
+		} catch (NoCalculation e) {
+			return ValueFetcher.NO_VALUE;
 		}
+	}
+
+	private double actualDebt(double coverage, double complexity) {
+		// It is not reasonable to have an objective at 100%, so target is 80%
+		// for coverage
+		double gap = (COVERAGE_TARGET - coverage / 100) * complexity;
 
-		double complexity = complexityFetcher.getValue(context);
+		return (gap > 0.0 ? gap : 0.0) * costModel.getUncoveredComplexityCost();
+	}
 
+	private double possibleDebt(double complexity) {
 		return COVERAGE_TARGET
-				* complexity
-				* settings
-						.getDouble(TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY)
-				/ HOURS_PER_DAY;
+				* complexity * costModel.getUncoveredComplexityCost();
+	}
+
+	/**
+	 * The complexity of a file is located on its lines: the decision points
+	 * of each line, and what remains of the complexity, such as the entry of
+	 * the functions, spread evenly over the executable lines. The uncovered
+	 * complexity is the one of the lines that are never hit. The decorator
+	 * sums the debt of the files into their directories and projects.
+	 */
+	private AxisDebt evaluateByLine(DecoratorContext context) {
+		if (!Scopes.isFile(context.getResource())) {
+			return AxisDebt.notApplicable(0.0);
+		}
+		String key = context.getResource().getKey();
+		if (key.equals(lastKey)) {
+			return lastDebt;
+		}
+		lastKey = key;
+		if (!complexityOf(context)) {
+			lastDebt = AxisDebt.notApplicable(0.0);
+			return lastDebt;
+		}
+
+		// Same debt as the coverage percentage when the complexity is spread
+		// evenly
+		double gap = fileComplexity[UNCOVERED] - (1 - COVERAGE_TARGET)
+				* fileComplexity[COMPLEXITY];
+		lastDebt = AxisDebt.of((gap > 0.0 ? gap : 0.0)
+				* costModel.getUncoveredComplexityCost(),
+				possibleDebt(fileComplexity[COMPLEXITY]));
+		return lastDebt;
+	}
+
+	/**
+	 * @return false when neither the line hits nor the coverage of the file
+	 *         are measured
+	 */
+	private boolean complexityOf(DecoratorContext context) {
+		double toCover = fetchComplexity(context);
+		if (Double.isNaN(toCover)) {
+			return false;
+		}
+		Measure hits = context.getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA);
+		Measure coverage = context.getMeasure(CoreMetrics.COVERAGE);
+		if (MeasureUtils.hasData(hits)) {
+			fileComplexity[UNCOVERED] = uncoveredComplexity(context,
+					hits.getData(), toCover);
+		} else if (MeasureUtils.hasValue(coverage)) {
+			fileComplexity[UNCOVERED] = (1 - coverage.getValue() / 100)
+					* toCover;
+		} else {
+			return false;
+		}
+		fileComplexity[COMPLEXITY] = toCover;
+		return true;
+	}
+
+	private double uncoveredComplexity(DecoratorContext context,
+			String data, double complexity) {
+		lineHits.parse(data);
+		int executableLines = lineHits.size();
+		if (executableLines == 0) {
+			return 0.0;
+		}
+
+		// Without source every line is as complex as the others
+		File source = SourceScanner.sourceOf(context);
+		boolean located = source != null && scanner.scan(source, true);
+
+		double decisions = 0.0;
+		double uncoveredDecisions = 0.0;
+		int uncoveredLines = 0;
+		for (int i = 0; i < executableLines; i++) {
+			int lineDecisions = located ? scanner.getDecisions(lineHits
+					.getLine(i)) : 0;
+			decisions += lineDecisions;
+			if (lineHits.getHits(i) == 0) {
+				uncoveredLines++;
+				uncoveredDecisions += lineDecisions;
+			}
+		}
+
+		double spread = Math.max(0.0, complexity - decisions);
+		double uncovered = uncoveredDecisions + spread * uncoveredLines
+				/ executableLines;
+		return Math.min(complexity, uncovered);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public List<Metric> dependsOn() {
+		if (lineHits != null) {
+			return Arrays.asList(CoreMetrics.COMPLEXITY, CoreMetrics.COVERAGE,
+					CoreMetrics.COVERAGE_LINE_HITS_DATA);
+		}
 		return Arrays.asList(CoreMetrics.COMPLEXITY, CoreMetrics.COVERAGE);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Metric> inputMetrics() {
+		if (lineHits != null) {
+			return Arrays.asList(CoreMetrics.COMPLEXITY, CoreMetrics.COVERAGE,
+					NoCoverageMetrics.NOT_COVERED_COMPLEXITY,
+					CoreMetrics.COVERAGE_LINE_HITS_DATA);
+		}
+		return Arrays.asList(CoreMetrics.COMPLEXITY, CoreMetrics.COVERAGE,
+				NoCoverageMetrics.NOT_COVERED_COMPLEXITY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double linearCost(CostModel model) {
+		return model.getUncoveredComplexityCost();
+	}
+
+	/**
+	 * By line, the uncovered complexity is only located in the files.
+	 */
+	public boolean rollsUp() {
+		return lineHits != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean supportsSnapshot() {
+		// The sources are read from the decorator thread
+		return lineHits == null;
+	}
+
+	/**
+	 * By line, the sources may change while the measures do not.
+	 */
+	public boolean isCacheable() {
+		return lineHits == null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,196 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+/**
+ * Dependencies between numbered nodes, stored as adjacency arrays: the
+ * successors of node n are targets[offsets[n]] to targets[offsets[n + 1] - 1].
+ * A graph of n nodes and e edges takes 4 * (n + e) bytes.
+ * 
+ * The strongly connected components are found by an iterative Tarjan
+ * search, in O(n + e) time and with a few int arrays and bitsets, so that
+ * deep graphs can not overflow the stack. The back edges of that search are
+ * the dependencies to cut: without them the graph has no cycle left.
+ */
+final class DependencyGraph {
+
+	private final int nodes;
+	private final int[] offsets;
+	private final int[] targets;
+
+	private int[] components;
+	private int[] componentSizes;
+	private int[] edgesToCut;
+
+	/**
+	 * @param from
+	 *            source of each edge
+	 * @param to
+	 *            target of each edge
+	 * @param edges
+	 *            number of edges in both arrays
+	 */
+	DependencyGraph(int nodes, int[] from, int[] to, int edges) {
+		this.nodes = nodes;
+		offsets = new int[nodes + 1];
+		for (int e = 0; e < edges; e++) {
+			offsets[from[e] + 1]++;
+		}
+		for (int n = 0; n < nodes; n++) {
+			offsets[n + 1] += offsets[n];
+		}
+		targets = new int[edges];
+		int[] next = new int[nodes];
+		System.arraycopy(offsets, 0, next, 0, nodes);
+		for (int e = 0; e < edges; e++) {
+			targets[next[from[e]]++] = to[e];
+		}
+	}
+
+	int size() {
+		return nodes;
+	}
+
+	int getOutDegree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	/**
+	 * Finds the strongly connected components and the edges to cut.
+	 */
+	void analyze() {
+		components = new int[nodes];
+		edgesToCut = new int[nodes];
+		// 0 for the nodes not visited yet, so indexes start at 1
+		int[] indexes = new int[nodes];
+		int[] lowlinks = new int[nodes];
+		long[] onStack = new long[(nodes + 63) >>> 6];
+		long[] onPath = new long[(nodes + 63) >>> 6];
+		int[] stack = new int[nodes];
+		int stackSize = 0;
+		int[] pathNodes = new int[nodes];
+		int[] pathEdges = new int[nodes];
+		int pathSize = 0;
+		int[] sizes = new int[Math.max(nodes, 1)];
+		int componentCount = 0;
+		int index = 0;
+
+		for (int root = 0; root < nodes; root++) {
+			if (indexes[root] != 0) {
+				continue;
+			}
+			// Visits the root
+			indexes[root] = ++index;
+			lowlinks[root] = index;
+			stack[stackSize++] = root;
+			set(onStack, root);
+			set(onPath, root);
+			pathNodes[pathSize] = root;
+			pathEdges[pathSize++] = offsets[root];
+
+			while (pathSize > 0) {
+				int v = pathNodes[pathSize - 1];
+				int edge = pathEdges[pathSize - 1];
+				if (edge < offsets[v + 1]) {
+					pathEdges[pathSize - 1]++;
+					int w = targets[edge];
+					if (w == v) {
+						// A resource depending on itself is no cycle
+						continue;
+					}
+					if (indexes[w] == 0) {
+						indexes[w] = ++index;
+						lowlinks[w] = index;
+						stack[stackSize++] = w;
+						set(onStack, w);
+						set(onPath, w);
+						pathNodes[pathSize] = w;
+						pathEdges[pathSize++] = offsets[w];
+					} else if (isSet(onStack, w)) {
+						lowlinks[v] = Math.min(lowlinks[v], indexes[w]);
+						if (isSet(onPath, w)) {
+							edgesToCut[v]++;
+						}
+					}
+					continue;
+				}
+
+				// All the successors of v are visited
+				clear(onPath, v);
+				pathSize--;
+				if (lowlinks[v] == indexes[v]) {
+					int size = 0;
+					int w;
+					do {
+						w = stack[--stackSize];
+						clear(onStack, w);
+						components[w] = componentCount;
+						size++;
+					} while (w != v);
+					sizes[componentCount++] = size;
+				}
+				if (pathSize > 0) {
+					int parent = pathNodes[pathSize - 1];
+					lowlinks[parent] = Math.min(lowlinks[parent], lowlinks[v]);
+				}
+			}
+		}
+		componentSizes = new int[componentCount];
+		System.arraycopy(sizes, 0, componentSizes, 0, componentCount);
+	}
+
+	/**
+	 * Components are numbered in reverse topological order.
+	 */
+	int getComponent(int node) {
+		return components[node];
+	}
+
+	int getComponentCount() {
+		return componentSizes.length;
+	}
+
+	/**
+	 * Whether the node belongs to a cycle of at least two nodes.
+	 */
+	boolean isInCycle(int node) {
+		return componentSizes[components[node]] > 1;
+	}
+
+	/**
+	 * Outgoing edges of the node that close a cycle.
+	 */
+	int getEdgesToCut(int node) {
+		return edgesToCut[node];
+	}
+
+	private static void set(long[] bits, int i) {
+		bits[i >>> 6] |= 1L << i;
+	}
+
+	private static void clear(long[] bits, int i) {
+		bits[i >>> 6] &= ~(1L << i);
+	}
+
+	private static boolean isSet(long[] bits, int i) {
+		return (bits[i >>> 6] & 1L << i) != 0L;
+	}
+}
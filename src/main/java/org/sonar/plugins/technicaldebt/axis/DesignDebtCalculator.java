@@ -0,0 +1,304 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.config.Settings;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Debt of the design: the dependencies to cut to break the cycles between
+ * files and between directories, and the classes to split because their
+ * LCOM4 is greater than 1. The possible debt is to cut every dependency and
+ * to split every file once.
+ * 
+ * The dependency graph of the module is built once, when its first resource
+ * is evaluated, and the dependencies to cut are summed into the directories
+ * and the projects containing their source.
+ */
+public final class DesignDebtCalculator extends AxisDebtCalculator {
+
+	private static final List<Metric> INPUT_METRICS = Collections
+			.unmodifiableList(Arrays.asList(CoreMetrics.LCOM4,
+					CoreMetrics.FILES));
+
+	private static final double WEIGHT_TOLERANCE = 1e-9;
+
+	private final SonarIndex index;
+	private boolean built;
+	private Project module;
+	/** Open addressing table of node + 1 by key, 0 for free slots */
+	private int[] slots = new int[1];
+	/** Key of each node */
+	private String[] keys = new String[0];
+	/** Dependencies of each resource and of its children */
+	private int[] dependencies;
+	/** Dependencies to cut of each resource and of its children */
+	private int[] edgesToCut;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public DesignDebtCalculator(Settings settings, CostModel costModel,
+			SonarIndex index) {
+		super(settings, costModel);
+		this.index = index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public DesignDebtCalculator(Settings settings, SonarIndex index) {
+		this(settings, new CostModel(settings), index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculateActualDebt(DecoratorContext context) {
+		int node = nodeOf(context);
+		double cuts = node >= 0 ? edgesToCut[node] : 0.0;
+		return actualDebt(cuts, context.getMeasure(CoreMetrics.LCOM4),
+				files(context));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		AxisDebt debt = evaluate(context);
+		return debt.isApplicable() ? debt.getPossibleDebt() : NOT_APPLICABLE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public AxisDebt evaluate(DecoratorContext context) {
+		int node = nodeOf(context);
+		Measure lcom4 = context.getMeasure(CoreMetrics.LCOM4);
+		double files = files(context);
+		double actualDebt = actualDebt(node >= 0 ? edgesToCut[node] : 0.0,
+				lcom4, files);
+		if (node < 0 && !MeasureUtils.hasValue(lcom4)) {
+			return AxisDebt.notApplicable(actualDebt);
+		}
+
+		double possibleDebt = (node >= 0 ? dependencies[node] : 0.0)
+				* costModel.getCutEdgeCost();
+		if (MeasureUtils.hasValue(lcom4)) {
+			possibleDebt += files * costModel.getSplitCohesionCost();
+		}
+		// Classes with a very high LCOM4 must not exceed 100%
+		return AxisDebt.of(actualDebt, Math.max(actualDebt, possibleDebt));
+	}
+
+	/**
+	 * The cost of a cut dependency, as long as the cost of a split keeps its
+	 * ratio to it: both debts are then proportional to it.
+	 */
+	public double linearCost(CostModel model) {
+		double cut = model.getCutEdgeCost();
+		double ownCut = costModel.getCutEdgeCost();
+		if (cut == 0.0 || ownCut == 0.0) {
+			return Double.NaN;
+		}
+		double weight = model.getSplitCohesionCost() / cut;
+		double ownWeight = costModel.getSplitCohesionCost() / ownCut;
+		return Math.abs(weight - ownWeight) > WEIGHT_TOLERANCE
+				* Math.max(weight, 1.0) ? Double.NaN : cut;
+	}
+
+	private double actualDebt(double cuts, Measure lcom4, double files) {
+		double debt = cuts * costModel.getCutEdgeCost();
+		if (MeasureUtils.hasValue(lcom4) && lcom4.getValue() > 1.0) {
+			// LCOM4 is averaged on directories and projects
+			debt += (lcom4.getValue() - 1.0) * files
+					* costModel.getSplitCohesionCost();
+		}
+		return debt;
+	}
+
+	private static double files(DecoratorContext context) {
+		if (Scopes.isFile(context.getResource())) {
+			return 1.0;
+		}
+		Measure files = context.getMeasure(CoreMetrics.FILES);
+		return MeasureUtils.hasValue(files) ? files.getValue() : 1.0;
+	}
+
+	private int nodeOf(DecoratorContext context) {
+		if (index == null) {
+			return -1;
+		}
+		Project project = context.getProject();
+		if (!built || module != project) {
+			build();
+			built = true;
+			module = project;
+		}
+		return find(keyOf(context.getResource()));
+	}
+
+	private static String keyOf(Resource resource) {
+		String key = resource.getEffectiveKey();
+		return key != null ? key : resource.getKey();
+	}
+
+	/**
+	 * Dependencies between files and between directories only: the
+	 * dependencies of the modules are the ones of their files.
+	 */
+	private void build() {
+		slots = new int[1024];
+		keys = new String[512];
+		List<Resource> resources = Lists.newArrayList();
+		int edges = 0;
+		int[] from = new int[16];
+		int[] to = new int[16];
+		for (Dependency dependency : index.getDependencies()) {
+			Resource source = dependency.getFrom();
+			Resource target = dependency.getTo();
+			if (source == null || target == null
+					|| !source.getScope().equals(target.getScope())
+					|| Scopes.isProject(source)) {
+				continue;
+			}
+			if (edges == from.length) {
+				from = Arrays.copyOf(from, edges * 2);
+				to = Arrays.copyOf(to, edges * 2);
+			}
+			from[edges] = idOf(source, resources);
+			to[edges] = idOf(target, resources);
+			edges++;
+		}
+
+		// The parents are numbered after the nodes of the graph
+		int graphNodes = resources.size();
+		int[] parents = new int[graphNodes + 16];
+		for (int node = 0; node < resources.size(); node++) {
+			Resource parent = index.getParent(resources.get(node));
+			if (node == parents.length) {
+				parents = Arrays.copyOf(parents, node * 2);
+			}
+			parents[node] = parent != null ? idOf(parent, resources) : -1;
+		}
+
+		DependencyGraph graph = new DependencyGraph(graphNodes, from, to,
+				edges);
+		graph.analyze();
+		dependencies = new int[resources.size()];
+		edgesToCut = new int[resources.size()];
+		for (int node = 0; node < graphNodes; node++) {
+			int outDegree = graph.getOutDegree(node);
+			int cuts = graph.getEdgesToCut(node);
+			if (outDegree == 0) {
+				continue;
+			}
+			for (int n = node; n >= 0; n = parents[n]) {
+				dependencies[n] += outDegree;
+				edgesToCut[n] += cuts;
+			}
+		}
+	}
+
+	private int idOf(Resource resource, List<Resource> resources) {
+		String key = keyOf(resource);
+		int id = find(key);
+		if (id < 0) {
+			id = resources.size();
+			if (id * 2 >= slots.length) {
+				grow(id);
+			}
+			if (id == keys.length) {
+				keys = Arrays.copyOf(keys, id * 2);
+			}
+			keys[id] = key;
+			insert(id);
+			resources.add(resource);
+		}
+		return id;
+	}
+
+	/**
+	 * @return the node of the key, or -1
+	 */
+	private int find(String key) {
+		int mask = slots.length - 1;
+		int slot = spread(key.hashCode()) & mask;
+		int node;
+		while ((node = slots[slot] - 1) >= 0) {
+			if (keys[node].equals(key)) {
+				return node;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void insert(int node) {
+		int mask = slots.length - 1;
+		int slot = spread(keys[node].hashCode()) & mask;
+		while (slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = node + 1;
+	}
+
+	private void grow(int nodeCount) {
+		slots = new int[slots.length * 2];
+		for (int node = 0; node < nodeCount; node++) {
+			insert(node);
+		}
+	}
+
+	/** Mixes the high bits of the hash into the low bits that select a slot */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Metric> dependsOn() {
+		return INPUT_METRICS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getName() {
+		return "Design";
+	}
+}
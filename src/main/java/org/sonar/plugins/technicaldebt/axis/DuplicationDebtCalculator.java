@@ -28,11 +28,15 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.measures.Metric;
-import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
 
 import java.util.Arrays;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
+
+import org.sonar.api.resources.Scopes;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
 /**
  * {@inheritDoc}
  */
@@ -41,40 +45,98 @@ public final class DuplicationDebtCalculator extends AxisDebtCalculator {
 
 	public static final Logger LOG = LoggerFactory.getLogger("TechnicalDebt");
 
+	private static final int CHARGED = 0;
+	private static final int POSSIBLE = 1;
+
+	/** Groups already charged in the project, null unless in precise mode */
+	private final DuplicationGroups groups;
+	/** Last file evaluated, whose groups are already known */
+	private String lastKey;
+	private final double[] lastBlocks = new double[2];
+
 	/**
 	 * {@inheritDoc}
 	 */
 	public DuplicationDebtCalculator(Settings settings) {
-		super(settings);
+		this(settings, new CostModel(settings));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public DuplicationDebtCalculator(Settings settings, CostModel costModel) {
+		this(settings, costModel, new DuplicationGroups());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public DuplicationDebtCalculator(Settings settings, CostModel costModel,
+			DuplicationGroups groups) {
+		super(settings, costModel);
+		boolean precise = settings != null
+				&& settings.getBoolean(TechnicalDebtPlugin.DUPLICATION_PRECISE);
+		this.groups = precise ? groups : null;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public double calculateActualDebt(DecoratorContext context) {
+		if (groups != null) {
+			return evaluate(context).getActualDebt();
+		}
 		Measure blocks = context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS);
 
-		if (!MeasureUtils.hasValue(blocks)) {
-			return 0.0;
+		return actualDebt(blocks);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		if (groups != null) {
+			AxisDebt debt = evaluate(context);
+			return debt.isApplicable() ? debt.getPossibleDebt()
+					: NOT_APPLICABLE;
+		}
+		Measure lines = context.getMeasure(CoreMetrics.LINES);
+		if (!MeasureUtils.hasValue(lines)) {
+			return NOT_APPLICABLE;
 		}
 
-		return blocks.getValue()
-				* settings
-						.getDouble(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS)
-				/ HOURS_PER_DAY;
+		return possibleDebt(lines,
+				context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS), context);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public double calculatePossibleDebt(DecoratorContext context)
-			throws NoCalculation {
+	public AxisDebt evaluate(DecoratorContext context) {
+		if (groups != null) {
+			return evaluatePrecisely(context);
+		}
+		Measure blocks = context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS);
+		double actualDebt = actualDebt(blocks);
+
 		Measure lines = context.getMeasure(CoreMetrics.LINES);
 		if (!MeasureUtils.hasValue(lines)) {
-			throw new NoCalculation();
+			return AxisDebt.notApplicable(actualDebt);
 		}
 
-		Measure blocks = context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS);
+		return AxisDebt.of(actualDebt, possibleDebt(lines, blocks, context));
+	}
+
+	private double actualDebt(Measure blocks) {
+		if (!MeasureUtils.hasValue(blocks)) {
+			return 0.0;
+		}
+
+		return blocks.getValue() * costModel.getDuplicatedBlockCost();
+	}
+
+	private double possibleDebt(Measure lines, Measure blocks,
+			DecoratorContext context) {
 		Measure density = context
 				.getMeasure(CoreMetrics.DUPLICATED_LINES_DENSITY);
 
@@ -87,21 +149,96 @@ public final class DuplicationDebtCalculator extends AxisDebtCalculator {
 			numberOfBlocks = lines.getValue() / NUMBER_OF_LINES_PER_BLOCK;
 		}
 
-		return numberOfBlocks
-				* settings
-						.getDouble(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS)
-				/ HOURS_PER_DAY;
+		return numberOfBlocks * costModel.getDuplicatedBlockCost();
+	}
 
+	/**
+	 * Each group of duplicated blocks is charged once, to the first file
+	 * evaluated in the project that contains one of its blocks. The decorator
+	 * sums the debt of the files into their directories and projects.
+	 */
+	private AxisDebt evaluatePrecisely(DecoratorContext context) {
+		if (!Scopes.isFile(context.getResource())) {
+			return AxisDebt.notApplicable(0.0);
+		}
+		double[] blocks = blocksOf(context);
+		double actualDebt = blocks[CHARGED]
+				* costModel.getDuplicatedBlockCost();
+		if (!MeasureUtils.hasValue(context.getMeasure(CoreMetrics.LINES))) {
+			return AxisDebt.notApplicable(actualDebt);
+		}
+
+		return AxisDebt.of(actualDebt, blocks[POSSIBLE]
+				* costModel.getDuplicatedBlockCost());
+	}
+
+	private double[] blocksOf(DecoratorContext context) {
+		String key = context.getResource().getKey();
+		if (key.equals(lastKey)) {
+			// Its groups are already known, they would not be charged again
+			return lastBlocks;
+		}
+		lastKey = key;
+
+		Measure lines = context.getMeasure(CoreMetrics.LINES);
+		double fileLines = MeasureUtils.hasValue(lines) ? lines.getValue()
+				: 0.0;
+		lastBlocks[CHARGED] = 0.0;
+		lastBlocks[POSSIBLE] = fileLines / NUMBER_OF_LINES_PER_BLOCK;
+
+		Measure data = context.getMeasure(CoreMetrics.DUPLICATIONS_DATA);
+		if (MeasureUtils.hasData(data)) {
+			try {
+				groups.read(data.getData());
+				lastBlocks[CHARGED] = groups.getChargedBlocks();
+				if (groups.getOwnLines() > 0) {
+					// As many blocks as the duplicated ones fit in the file
+					lastBlocks[POSSIBLE] = fileLines * groups.getOwnBlocks()
+							/ groups.getOwnLines();
+				}
+			} catch (XMLStreamException e) {
+				LOG.warn("Unable to read the duplications of " + key, e);
+			}
+		}
+		lastBlocks[POSSIBLE] = Math.max(lastBlocks[POSSIBLE],
+				lastBlocks[CHARGED]);
+		return lastBlocks;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public List<Metric> dependsOn() {
+		if (groups != null) {
+			return Arrays.asList(CoreMetrics.DUPLICATIONS_DATA,
+					CoreMetrics.LINES);
+		}
 		return Arrays.asList(CoreMetrics.DUPLICATED_LINES_DENSITY,
 				CoreMetrics.DUPLICATED_BLOCKS, CoreMetrics.LINES);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public double linearCost(CostModel model) {
+		return model.getDuplicatedBlockCost();
+	}
+
+	/**
+	 * In precise mode, the groups are only read from the files.
+	 */
+	public boolean rollsUp() {
+		return groups != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean supportsSnapshot() {
+		// The groups already charged depend on the order of the files
+		return groups == null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
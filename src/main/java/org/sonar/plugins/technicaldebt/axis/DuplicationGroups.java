@@ -0,0 +1,227 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+
+/**
+ * Groups of duplicated blocks of the project, read from the duplications data
+ * of its files:
+ * 
+ * <pre>
+ * &lt;duplications&gt;
+ *   &lt;g&gt;
+ *     &lt;b s="12" l="30" r="project:src/a.cc"/&gt;
+ *     &lt;b s="40" l="30" r="project:src/b.cc"/&gt;
+ *   &lt;/g&gt;
+ * &lt;/duplications&gt;
+ * </pre>
+ * 
+ * A group is listed by each of the files that contain one of its blocks, so
+ * only its first reading is charged. Groups are remembered by a 64 bits
+ * fingerprint of their blocks, whatever their order, in an open addressing
+ * table: 16 bytes per group at most. The data is streamed, no tree of the
+ * document is built.
+ * 
+ * A single table is shared by all the modules of the analysis, since a group
+ * may span files of several modules.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public final class DuplicationGroups implements BatchExtension {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	/** Free slots, the fingerprint 0 is stored as 1 */
+	private static final long FREE = 0L;
+
+	private final XMLInputFactory factory;
+	private long[] slots = new long[1024];
+	private int size;
+
+	private int chargedBlocks;
+	private int ownBlocks;
+	private long ownLines;
+
+	public DuplicationGroups() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				Boolean.FALSE);
+	}
+
+	/**
+	 * Reads the duplications of a file. The blocks of the file are the first
+	 * block of each group and the blocks of the same resource.
+	 * 
+	 * @throws XMLStreamException
+	 *             when the data is not well formed, the groups read before the
+	 *             error stay known
+	 */
+	void read(String data) throws XMLStreamException {
+		chargedBlocks = 0;
+		ownBlocks = 0;
+		ownLines = 0;
+
+		XMLStreamReader reader = factory
+				.createXMLStreamReader(new StringReader(data));
+		try {
+			String file = null;
+			long fingerprint = 0L;
+			int blocks = 0;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if ("g".equals(name)) {
+						file = null;
+						fingerprint = 0L;
+						blocks = 0;
+					} else if ("b".equals(name)) {
+						String resource = reader.getAttributeValue(null, "r");
+						int start = parseInt(reader.getAttributeValue(null, "s"));
+						int length = parseInt(reader.getAttributeValue(null, "l"));
+						if (file == null) {
+							file = resource;
+						}
+						if (file != null && file.equals(resource)) {
+							ownBlocks++;
+							ownLines += length;
+						}
+						// Sum of mixed hashes does not depend on the order
+						fingerprint += mix(hash(resource, start, length));
+						blocks++;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT
+						&& "g".equals(reader.getLocalName()) && blocks > 1
+						&& add(mix(fingerprint + blocks))) {
+					// Every copy but one has to be removed
+					chargedBlocks += blocks - 1;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static int parseInt(String value) {
+		if (value == null) {
+			return 0;
+		}
+		int result = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				result = result * 10 + c - '0';
+			}
+		}
+		return result;
+	}
+
+	private static long hash(String resource, int start, int length) {
+		long hash = FNV_OFFSET;
+		if (resource != null) {
+			for (int i = 0; i < resource.length(); i++) {
+				hash = (hash ^ resource.charAt(i)) * FNV_PRIME;
+			}
+		}
+		hash = (hash ^ start) * FNV_PRIME;
+		return (hash ^ length) * FNV_PRIME;
+	}
+
+	/** Finalizer of SplitMix64 */
+	private static long mix(long value) {
+		long mixed = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+		return mixed ^ (mixed >>> 31);
+	}
+
+	/**
+	 * @return false when the group was already known
+	 */
+	boolean add(long fingerprint) {
+		long key = fingerprint == FREE ? 1L : fingerprint;
+		if (size * 2 >= slots.length) {
+			grow();
+		}
+		int mask = slots.length - 1;
+		int slot = (int) key & mask;
+		while (slots[slot] != FREE) {
+			if (slots[slot] == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = key;
+		size++;
+		return true;
+	}
+
+	private void grow() {
+		long[] old = slots;
+		slots = new long[old.length * 2];
+		int mask = slots.length - 1;
+		for (long key : old) {
+			if (key != FREE) {
+				int slot = (int) key & mask;
+				while (slots[slot] != FREE) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = key;
+			}
+		}
+	}
+
+	/**
+	 * Number of groups read so far.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Copies to remove in the groups of the last data read for the first time.
+	 */
+	int getChargedBlocks() {
+		return chargedBlocks;
+	}
+
+	/**
+	 * Blocks of the file of the last data read.
+	 */
+	int getOwnBlocks() {
+		return ownBlocks;
+	}
+
+	/**
+	 * Duplicated lines of the blocks of the file of the last data read.
+	 */
+	long getOwnLines() {
+		return ownLines;
+	}
+}
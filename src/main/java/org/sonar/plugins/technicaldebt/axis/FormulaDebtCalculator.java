@@ -0,0 +1,189 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.MetricFinder;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Axis defined in the settings: technicaldebt.formulas lists the names of
+ * the axes, and technicaldebt.formula.NAME.actual and
+ * technicaldebt.formula.NAME.possible give the actual and possible debt in
+ * hours as formulas over metric keys, see {@link FormulaParser}. The formulas
+ * are compiled once, evaluating them allocates nothing.
+ * 
+ * A resource on which the actual debt has no value has no debt, and a
+ * resource on which the possible debt has no value is not applicable. An
+ * infinite result, of a division by zero for instance, makes the axis not
+ * applicable to the resource.
+ */
+public final class FormulaDebtCalculator extends AxisDebtCalculator {
+
+	private static final String RESERVED_CHARS = "=;:|\t\n";
+	/** Group of the total debt of the hotspots */
+	private static final String TOTAL = "Total";
+
+	private final String name;
+	private final ValueFetcher actualDebt;
+	private final ValueFetcher possibleDebt;
+	private final List<Metric> metrics;
+
+	public FormulaDebtCalculator(Settings settings, CostModel costModel,
+			MetricFinder metricFinder, String name) {
+		super(settings, costModel);
+		checkName(name);
+		this.name = name;
+		Set<Metric> read = Sets.newLinkedHashSet();
+		actualDebt = compile(settings, metricFinder, read, actualKey(name));
+		possibleDebt = compile(settings, metricFinder, read,
+				possibleKey(name));
+		metrics = Collections.unmodifiableList(Lists.newArrayList(read));
+	}
+
+	/**
+	 * The axes listed by technicaldebt.formulas.
+	 */
+	public static List<AxisDebtCalculator> fromSettings(Settings settings,
+			CostModel costModel, MetricFinder metricFinder) {
+		List<AxisDebtCalculator> axes = Lists.newArrayList();
+		for (String name : settings
+				.getStringArray(TechnicalDebtPlugin.FORMULAS)) {
+			axes.add(new FormulaDebtCalculator(settings, costModel,
+					metricFinder, name));
+		}
+		return axes;
+	}
+
+	/**
+	 * The name is written in the data of the axes, repartition, summary and
+	 * hotspots measures, whose separators it can not contain, and can not be
+	 * the group of the total debt of the hotspots.
+	 */
+	private static void checkName(String name) {
+		if (name.length() == 0) {
+			throw new IllegalArgumentException("Empty formula axis name in "
+					+ TechnicalDebtPlugin.FORMULAS);
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (RESERVED_CHARS.indexOf(name.charAt(i)) >= 0) {
+				throw new IllegalArgumentException("Formula axis " + name
+						+ " can not contain '" + name.charAt(i) + "'");
+			}
+		}
+		if (TOTAL.equalsIgnoreCase(name)) {
+			throw new IllegalArgumentException("Formula axis can not be named "
+					+ name);
+		}
+	}
+
+	public static String actualKey(String name) {
+		return TechnicalDebtPlugin.FORMULA_PREFIX + name + ".actual";
+	}
+
+	public static String possibleKey(String name) {
+		return TechnicalDebtPlugin.FORMULA_PREFIX + name + ".possible";
+	}
+
+	private static ValueFetcher compile(Settings settings,
+			MetricFinder metricFinder, Set<Metric> read, String key) {
+		String formula = settings.getString(key);
+		if (formula == null || formula.trim().length() == 0) {
+			throw new IllegalArgumentException("Missing formula " + key);
+		}
+		return new FormulaParser(formula, metricFinder, read).parse();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculateActualDebt(DecoratorContext context) {
+		return actualDays(fetch(actualDebt, context));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		return possibleDays(fetch(possibleDebt, context));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public AxisDebt evaluate(DecoratorContext context) {
+		double actualHours = fetch(actualDebt, context);
+		if (Double.isInfinite(actualHours)) {
+			return AxisDebt.notApplicable(0.0);
+		}
+		double possible = possibleDays(fetch(possibleDebt, context));
+		return isApplicable(possible) ? AxisDebt.of(actualDays(actualHours),
+				possible) : AxisDebt.notApplicable(actualDays(actualHours));
+	}
+
+	private static double actualDays(double hours) {
+		return Double.isNaN(hours) || Double.isInfinite(hours) || hours < 0.0 ? 0.0
+				: hours / HOURS_PER_DAY;
+	}
+
+	private static double possibleDays(double hours) {
+		return Double.isNaN(hours) || Double.isInfinite(hours) ? NOT_APPLICABLE
+				: Math.max(hours, 0.0) / HOURS_PER_DAY;
+	}
+
+	private static double fetch(ValueFetcher fetcher, DecoratorContext context) {
+		try {
+			return fetcher.getValue(context);
+		} catch (NoCalculation e) {
+			return ValueFetcher.NO_VALUE;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Metric> dependsOn() {
+		return metrics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean supportsSnapshot() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.List;
+import java.util.Set;
+
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.MetricFinder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compiles a formula over metric keys into a tree of {@link ValueFetcher}.
+ * The grammar is
+ * 
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := factor (('*' | '/') factor)*
+ * factor     := '-' factor | number | metric key | function '(' arguments ')' | '(' expression ')'
+ * </pre>
+ * 
+ * with the functions min(a, b), max(a, b), over(value, threshold),
+ * under(value, threshold) and default(value, fallback). A metric without
+ * value on the resource has no value, and neither has any expression using
+ * it unless default() replaces it.
+ */
+final class FormulaParser {
+
+	private final String formula;
+	private final MetricFinder metricFinder;
+	private final Set<Metric> metrics;
+	private int position;
+
+	/**
+	 * @param metrics
+	 *            receives the metrics read by the formula
+	 */
+	FormulaParser(String formula, MetricFinder metricFinder,
+			Set<Metric> metrics) {
+		this.formula = formula;
+		this.metricFinder = metricFinder;
+		this.metrics = metrics;
+	}
+
+	ValueFetcher parse() {
+		ValueFetcher fetcher = expression();
+		skipWhitespace();
+		if (position < formula.length()) {
+			throw error("Unexpected '" + formula.charAt(position) + "'");
+		}
+		return fetcher;
+	}
+
+	private ValueFetcher expression() {
+		ValueFetcher fetcher = term();
+		while (true) {
+			if (accept('+')) {
+				fetcher = ValueFetchers.sum(fetcher, term());
+			} else if (accept('-')) {
+				fetcher = ValueFetchers.difference(fetcher, term());
+			} else {
+				return fetcher;
+			}
+		}
+	}
+
+	private ValueFetcher term() {
+		ValueFetcher fetcher = factor();
+		while (true) {
+			if (accept('*')) {
+				fetcher = ValueFetchers.product(fetcher, factor());
+			} else if (accept('/')) {
+				fetcher = ValueFetchers.ratio(fetcher, factor());
+			} else {
+				return fetcher;
+			}
+		}
+	}
+
+	private ValueFetcher factor() {
+		if (accept('-')) {
+			return ValueFetchers.difference(ValueFetchers.constant(0.0),
+					factor());
+		}
+		if (accept('(')) {
+			ValueFetcher fetcher = expression();
+			expect(')');
+			return fetcher;
+		}
+		skipWhitespace();
+		int start = position;
+		if (start < formula.length()
+				&& (Character.isDigit(formula.charAt(start)) || formula
+						.charAt(start) == '.')) {
+			return number();
+		}
+		while (position < formula.length()
+				&& isIdentifierPart(formula.charAt(position))) {
+			position++;
+		}
+		if (start == position) {
+			throw error(position < formula.length() ? "Unexpected '"
+					+ formula.charAt(position) + "'" : "Unexpected end");
+		}
+		String name = formula.substring(start, position);
+		if (accept('(')) {
+			return function(name, start);
+		}
+		Metric metric = metricFinder.findByKey(name);
+		if (metric == null) {
+			position = start;
+			throw error("Unknown metric " + name);
+		}
+		metrics.add(metric);
+		return ValueFetchers.measure(metric);
+	}
+
+	private ValueFetcher number() {
+		int start = position;
+		while (position < formula.length()
+				&& (Character.isDigit(formula.charAt(position)) || formula
+						.charAt(position) == '.')) {
+			position++;
+		}
+		try {
+			return ValueFetchers.constant(Double.parseDouble(formula
+					.substring(start, position)));
+		} catch (NumberFormatException e) {
+			position = start;
+			throw error("Invalid number");
+		}
+	}
+
+	private ValueFetcher function(String name, int start) {
+		List<ValueFetcher> arguments = Lists.newArrayList();
+		if (!accept(')')) {
+			do {
+				arguments.add(expression());
+			} while (accept(','));
+			expect(')');
+		}
+		if (arguments.size() != 2) {
+			position = start;
+			throw error("Function " + name + " takes 2 arguments");
+		}
+		ValueFetcher left = arguments.get(0);
+		ValueFetcher right = arguments.get(1);
+		if ("min".equals(name)) {
+			return ValueFetchers.min(left, right);
+		} else if ("max".equals(name)) {
+			return ValueFetchers.max(left, right);
+		} else if ("over".equals(name)) {
+			return ValueFetchers.over(left, right);
+		} else if ("under".equals(name)) {
+			return ValueFetchers.under(left, right);
+		} else if ("default".equals(name)) {
+			return ValueFetchers.fallback(left, right);
+		}
+		position = start;
+		throw error("Unknown function " + name);
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private boolean accept(char c) {
+		skipWhitespace();
+		if (position < formula.length() && formula.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!accept(c)) {
+			throw error("Expected '" + c + "'");
+		}
+	}
+
+	private void skipWhitespace() {
+		while (position < formula.length()
+				&& Character.isWhitespace(formula.charAt(position))) {
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position "
+				+ position + " of formula: " + formula);
+	}
+}
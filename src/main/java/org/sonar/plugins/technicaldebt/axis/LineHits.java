@@ -0,0 +1,104 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.Arrays;
+
+/**
+ * Hits of the executable lines of a file, read from coverage data such as
+ * 1=3;2=0;5=12. The data is scanned in place into two int arrays that are
+ * reused from one file to the next, no string is cut out of it.
+ */
+final class LineHits {
+
+	private int[] lines = new int[256];
+	private int[] hits = new int[256];
+	private int size;
+
+	/**
+	 * Reads the hits of a file, the previous ones are lost. Malformed pairs
+	 * are skipped.
+	 */
+	void parse(String data) {
+		size = 0;
+		int length = data.length();
+		int i = 0;
+		while (i < length) {
+			int line = 0;
+			boolean hasLine = false;
+			char c;
+			while (i < length && (c = data.charAt(i)) != '=' && c != ';') {
+				if (c >= '0' && c <= '9') {
+					line = line * 10 + c - '0';
+					hasLine = true;
+				}
+				i++;
+			}
+			if (i == length || data.charAt(i) == ';') {
+				i++;
+				continue;
+			}
+			i++;
+
+			int hit = 0;
+			boolean hasHit = false;
+			while (i < length && (c = data.charAt(i)) != ';') {
+				if (c >= '0' && c <= '9') {
+					// Saturates, only zero matters
+					hit = hit < Integer.MAX_VALUE / 10 ? hit * 10 + c - '0'
+							: Integer.MAX_VALUE;
+					hasHit = true;
+				}
+				i++;
+			}
+			i++;
+
+			if (hasLine && hasHit) {
+				add(line, hit);
+			}
+		}
+	}
+
+	private void add(int line, int hit) {
+		if (size == lines.length) {
+			lines = Arrays.copyOf(lines, size * 2);
+			hits = Arrays.copyOf(hits, size * 2);
+		}
+		lines[size] = line;
+		hits[size] = hit;
+		size++;
+	}
+
+	/**
+	 * Number of executable lines read.
+	 */
+	int size() {
+		return size;
+	}
+
+	int getLine(int index) {
+		return lines[index];
+	}
+
+	int getHits(int index) {
+		return hits[index];
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+
+/**
+ * Values of a fixed set of metrics on a fixed set of resources, stored by
+ * column: one double per resource and metric, a bit per resource and metric
+ * for the measures that do not exist, and a dictionary of the resource keys.
+ * A row costs 8 bytes per metric, 8 bytes and 2 bytes per character of its
+ * key, whatever the number of rows. The text of the data and distribution
+ * metrics is appended to a buffer of characters, which grows as needed, and
+ * is located by 8 bytes per row and data metric.
+ * 
+ * The columns and the text are either on the heap or, for very large modules,
+ * in direct buffers out of the heap: only the metrics and a column index per
+ * metric stay on the heap. Rows are appended by a single thread, after which
+ * the snapshot can be read by any number of threads.
+ */
+public final class MeasureSnapshot {
+
+	/** At most one bit per metric in the mask of the missing measures */
+	public static final int MAX_METRICS = Long.SIZE;
+
+	private static final int NO_ROW = -1;
+
+	/** Initial characters of text per row and data metric */
+	private static final int TEXT_PER_CELL = 16;
+
+	private final Metric[] metrics;
+	private final int capacity;
+	private final boolean offHeap;
+	private final DoubleBuffer values;
+	private final LongBuffer missing;
+	/** Index of the column among the data columns, -1 for numeric metrics */
+	private final int[] dataColumns;
+	private final int dataCount;
+	/** Start and length of the text of each data cell, length -1 if none */
+	private final IntBuffer dataBounds;
+	private CharBuffer text;
+	private int textLength;
+	private final CharBuffer keys;
+	private final IntBuffer keyEnds;
+	/** Open addressing table of row + 1, 0 for free slots */
+	private final IntBuffer slots;
+	private final int slotMask;
+	private int size;
+	private int keyLength;
+
+	/**
+	 * @param keyCapacity
+	 *            total length of the keys of the rows
+	 */
+	public MeasureSnapshot(Metric[] metrics, int capacity, long keyCapacity,
+			boolean offHeap) {
+		if (metrics.length > MAX_METRICS) {
+			throw new IllegalArgumentException("At most " + MAX_METRICS
+					+ " metrics can be snapshot");
+		}
+		if (capacity < 0 || keyCapacity < 0) {
+			throw new IllegalArgumentException("Negative capacity");
+		}
+		this.metrics = metrics.clone();
+		this.capacity = capacity;
+		this.offHeap = offHeap;
+		dataColumns = new int[metrics.length];
+		int dataCount = 0;
+		for (int i = 0; i < metrics.length; i++) {
+			dataColumns[i] = metrics[i].isDataType() ? dataCount++ : -1;
+		}
+		this.dataCount = dataCount;
+		long boundCount = (long) capacity * dataCount * 2;
+		long textCapacity = (long) capacity * dataCount * TEXT_PER_CELL;
+		// Twice as many slots as rows, rounded up to a power of two
+		long slotCount = Long.highestOneBit(Math.max(capacity, 1) * 2L - 1) * 2;
+		long valueCount = (long) capacity * metrics.length;
+		if (offHeap) {
+			values = direct(valueCount, 8).asDoubleBuffer();
+			missing = direct(capacity, 8).asLongBuffer();
+			keys = direct(keyCapacity, 2).asCharBuffer();
+			keyEnds = direct(capacity, 4).asIntBuffer();
+			slots = direct(slotCount, 4).asIntBuffer();
+			dataBounds = direct(boundCount, 4).asIntBuffer();
+			text = direct(textCapacity, 2).asCharBuffer();
+		} else {
+			values = DoubleBuffer.allocate(checkedSize(valueCount, 1));
+			missing = LongBuffer.allocate(capacity);
+			keys = CharBuffer.allocate(checkedSize(keyCapacity, 1));
+			keyEnds = IntBuffer.allocate(capacity);
+			slots = IntBuffer.allocate(checkedSize(slotCount, 1));
+			dataBounds = IntBuffer.allocate(checkedSize(boundCount, 1));
+			text = CharBuffer.allocate(checkedSize(textCapacity, 1));
+		}
+		slotMask = (int) slotCount - 1;
+	}
+
+	private static ByteBuffer direct(long count, int bytesPerElement) {
+		return ByteBuffer.allocateDirect(checkedSize(count, bytesPerElement))
+				.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Buffers and arrays are indexed by int, larger modules are evaluated file
+	 * by file.
+	 */
+	public static int checkedSize(long count, int bytesPerElement) {
+		long size = count * bytesPerElement;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A snapshot buffer can not hold "
+					+ count + " values");
+		}
+		return (int) size;
+	}
+
+	public Metric[] getMetrics() {
+		return metrics.clone();
+	}
+
+	public int columnOf(Metric metric) {
+		for (int i = 0; i < metrics.length; i++) {
+			if (metrics[i].equals(metric)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Appends the row of a resource, whose measures are all missing until
+	 * they are set.
+	 * 
+	 * @return the index of the row
+	 */
+	public int add(String key) {
+		if (size == capacity) {
+			throw new IllegalStateException("The snapshot is full");
+		}
+		int row = size++;
+		keys.position(keyLength);
+		keys.put(key);
+		keyLength += key.length();
+		keyEnds.put(row, keyLength);
+		missing.put(row, metrics.length == MAX_METRICS ? -1L
+				: (1L << metrics.length) - 1);
+		for (int i = 0; i < metrics.length; i++) {
+			values.put(row * metrics.length + i, Double.NaN);
+		}
+		for (int i = 0; i < dataCount; i++) {
+			dataBounds.put((row * dataCount + i) * 2 + 1, -1);
+		}
+
+		int slot = key.hashCode() & slotMask;
+		while (slots.get(slot) != 0) {
+			slot = (slot + 1) & slotMask;
+		}
+		slots.put(slot, row + 1);
+		return row;
+	}
+
+	/**
+	 * A measure without value is not missing, but has no value either.
+	 */
+	public void set(int row, int column, Measure measure) {
+		if (measure == null) {
+			return;
+		}
+		missing.put(row, missing.get(row) & ~(1L << column));
+		Double value = measure.getValue();
+		values.put(row * metrics.length + column, value != null ? value
+				: Double.NaN);
+		String data = measure.getData();
+		if (dataColumns[column] >= 0 && data != null) {
+			int cell = (row * dataCount + dataColumns[column]) * 2;
+			ensureText((long) textLength + data.length());
+			text.position(textLength);
+			text.put(data);
+			dataBounds.put(cell, textLength);
+			dataBounds.put(cell + 1, data.length());
+			textLength += data.length();
+		}
+	}
+
+	/**
+	 * Doubles the text buffer until it holds the given number of characters.
+	 */
+	private void ensureText(long length) {
+		if (length <= text.capacity()) {
+			return;
+		}
+		long grownCapacity = Math.max(length, text.capacity() * 2L);
+		CharBuffer grown = offHeap ? direct(grownCapacity, 2).asCharBuffer()
+				: CharBuffer.allocate(checkedSize(grownCapacity, 1));
+		text.position(0);
+		text.limit(textLength);
+		grown.put(text);
+		text = grown;
+	}
+
+	/**
+	 * @return the row of the resource, or -1
+	 */
+	public int rowOf(String key) {
+		int slot = key.hashCode() & slotMask;
+		int row;
+		while ((row = slots.get(slot) - 1) != NO_ROW) {
+			if (keyEquals(row, key)) {
+				return row;
+			}
+			slot = (slot + 1) & slotMask;
+		}
+		return NO_ROW;
+	}
+
+	private boolean keyEquals(int row, String key) {
+		int start = row > 0 ? keyEnds.get(row - 1) : 0;
+		if (keyEnds.get(row) - start != key.length()) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (keys.get(start + i) != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getKey(int row) {
+		int start = row > 0 ? keyEnds.get(row - 1) : 0;
+		return string(keys, start, keyEnds.get(row) - start);
+	}
+
+	private static String string(CharBuffer buffer, int start, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = buffer.get(start + i);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * NaN when the measure is missing or has no value.
+	 */
+	public double getValue(int row, int column) {
+		return values.get(row * metrics.length + column);
+	}
+
+	/**
+	 * Bit i is set when the measure of the ith metric is missing.
+	 */
+	public long getMissing(int row) {
+		return missing.get(row);
+	}
+
+	/**
+	 * Null when the measure is missing or when the metric is numeric.
+	 */
+	public String getData(int row, int column) {
+		if (dataColumns[column] < 0) {
+			return null;
+		}
+		int cell = (row * dataCount + dataColumns[column]) * 2;
+		int length = dataBounds.get(cell + 1);
+		return length >= 0 ? string(text, dataBounds.get(cell), length) : null;
+	}
+}
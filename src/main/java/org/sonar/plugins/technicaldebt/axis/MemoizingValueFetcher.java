@@ -0,0 +1,92 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.List;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.resources.Resource;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Fetches the value of a resource once, however many times the axes ask for
+ * it while the resource is decorated. Only the value of the last resource is
+ * kept, by thread, so that the fetcher can be shared by the axes evaluated in
+ * parallel.
+ * 
+ * Measures can not be replaced once saved, so the value can only change when
+ * a missing input is saved later: the value is not reused by another
+ * context, even of the same resource.
+ */
+public final class MemoizingValueFetcher implements ValueFetcher {
+
+	private final ValueFetcher fetcher;
+	/** The slots of every thread, so that they can all be cleared */
+	private final List<Slot> allSlots = Lists.newArrayList();
+	private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+		protected Slot initialValue() {
+			Slot slot = new Slot();
+			synchronized (allSlots) {
+				allSlots.add(slot);
+			}
+			return slot;
+		}
+	};
+
+	public MemoizingValueFetcher(ValueFetcher fetcher) {
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double getValue(DecoratorContext context) throws NoCalculation {
+		Slot slot = slots.get();
+		Resource resource = context.getResource();
+		if (slot.context != context || slot.resource != resource) {
+			// Failures are not memoized, the next call fails again
+			slot.context = null;
+			slot.value = fetcher.getValue(context);
+			slot.context = context;
+			slot.resource = resource;
+		}
+		return slot.value;
+	}
+
+	/**
+	 * Releases the last context of every thread, once the decoration is over.
+	 */
+	public void clear() {
+		synchronized (allSlots) {
+			for (Slot slot : allSlots) {
+				slot.context = null;
+				slot.resource = null;
+			}
+		}
+	}
+
+	private static final class Slot {
+		private DecoratorContext context;
+		private Resource resource;
+		private double value;
+	}
+}
@@ -20,6 +20,19 @@
 
 package org.sonar.plugins.technicaldebt.axis;
 
+/**
+ * Former way for an axis or a value fetcher to tell that it does not apply to
+ * a resource. It is still declared by the extension points and handled by the
+ * decorator, but new axes and fetchers should return
+ * {@link AxisDebtCalculator#NOT_APPLICABLE} or {@link ValueFetcher#NO_VALUE}
+ * instead.
+ */
 public class NoCalculation extends Exception {
 
+	/**
+	 * The exception only carries a signal, so the stack trace is not filled.
+	 */
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
 }
@@ -0,0 +1,501 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+
+/**
+ * Counts the lines of code and the lines of comments of a C or C++ source,
+ * for the modules whose comments are not measured, and on demand the
+ * decision points of each line: if, for, while, case, catch, &amp;&amp;, || and ?.
+ * 
+ * The file is mapped in memory by windows and read once, byte per byte, by
+ * a state machine that knows about line and block comments, strings and
+ * characters. A line can be both a line of code and a line of comment, blank
+ * lines and lines of a comment without any text are neither. Nothing is
+ * allocated per line, so that generated sources of several megabytes cost
+ * no more than their size in page faults.
+ * 
+ * Lines of the preprocessor are not decisions, nor &amp;&amp; of a type such
+ * as T&amp;&amp; x, auto&amp;&amp;, vector&lt;T&gt;&amp;&amp; or f(T&amp;&amp;). A
+ * single scanner is shared by the axes, so that a file scanned by one is not
+ * scanned again by the other.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public final class SourceScanner implements BatchExtension {
+
+	/** Directory of the files at the root of a source directory */
+	private static final String ROOT_PREFIX = "[root]/";
+
+	/** Bytes mapped at once, files are rarely larger */
+	static final int WINDOW = 1 << 26;
+
+	private static final int CODE = 0;
+	/** '/' in code, either a division or the start of a comment */
+	private static final int SLASH = 1;
+	private static final int LINE_COMMENT = 2;
+	/** '\' in a line comment, continues the comment on the next line */
+	private static final int LINE_COMMENT_ESCAPE = 3;
+	private static final int BLOCK_COMMENT = 4;
+	/** '*' in a block comment, either text or the end of the comment */
+	private static final int BLOCK_STAR = 5;
+	private static final int STRING = 6;
+	private static final int STRING_ESCAPE = 7;
+	private static final int CHARACTER = 8;
+	private static final int CHARACTER_ESCAPE = 9;
+
+	private static final long IF = word("if");
+	private static final long FOR = word("for");
+	private static final long WHILE = word("while");
+	private static final long CASE = word("case");
+	private static final long CATCH = word("catch");
+	private static final long AUTO = word("auto");
+	private static final long CONST = word("const");
+
+	private final int window;
+	private int codeLines;
+	private int commentLines;
+	/** By line from 1, null unless decisions are counted */
+	private int[] decisions;
+	/** File of the counts, null when its scan failed */
+	private File scanned;
+	private long scannedLength;
+	private long scannedModified;
+
+	public SourceScanner() {
+		this(WINDOW);
+	}
+
+	SourceScanner(int window) {
+		this.window = window;
+	}
+
+	/**
+	 * Letters of a keyword, 8 at most, packed in a long.
+	 */
+	private static long word(String keyword) {
+		long word = 0L;
+		for (int i = 0; i < keyword.length(); i++) {
+			word = word << 8 | keyword.charAt(i);
+		}
+		return word;
+	}
+
+	/**
+	 * Source file of a resource, looked up in the source directories of its
+	 * module then in its base directory, or null.
+	 */
+	static File sourceOf(DecoratorContext context) {
+		Project project = context.getProject();
+		ProjectFileSystem fileSystem = project != null ? project
+				.getFileSystem() : null;
+		if (fileSystem == null) {
+			return null;
+		}
+
+		String path = relativePath(context.getResource().getKey(), project);
+		for (File directory : fileSystem.getSourceDirs()) {
+			File source = new File(directory, path);
+			if (source.isFile()) {
+				return source;
+			}
+		}
+		File source = fileSystem.resolvePath(path);
+		return source != null && source.isFile() ? source : null;
+	}
+
+	/**
+	 * Path of a file from the key of its resource, without the key of its
+	 * module nor the directory of the files at the root.
+	 */
+	static String relativePath(String key, Project project) {
+		String path = key;
+		String module = project.getKey() + ':';
+		if (path.startsWith(module)) {
+			path = path.substring(module.length());
+		}
+		if (path.startsWith(ROOT_PREFIX)) {
+			path = path.substring(ROOT_PREFIX.length());
+		}
+		return path;
+	}
+
+	/**
+	 * Counts the lines of the file, the previous counts are lost unless they
+	 * are the ones of the same file.
+	 * 
+	 * @return false when the file can not be read
+	 */
+	boolean scan(File file) {
+		return scan(file, false);
+	}
+
+	/**
+	 * @param countDecisions
+	 *            whether to count the decision points of each line too
+	 */
+	boolean scan(File file, boolean countDecisions) {
+		if (file.equals(scanned) && file.length() == scannedLength
+				&& file.lastModified() == scannedModified
+				&& (decisions != null || !countDecisions)) {
+			return true;
+		}
+		scanned = null;
+		codeLines = 0;
+		commentLines = 0;
+		if (countDecisions) {
+			if (decisions == null) {
+				decisions = new int[1024];
+			} else {
+				Arrays.fill(decisions, 0);
+			}
+		} else {
+			decisions = null;
+		}
+		FileInputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			scan(input.getChannel());
+			scanned = file;
+			scannedLength = file.length();
+			scannedModified = file.lastModified();
+			return true;
+		} catch (IOException e) {
+			codeLines = 0;
+			commentLines = 0;
+			return false;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// Already read
+				}
+			}
+		}
+	}
+
+	private void scan(FileChannel channel) throws IOException {
+		int state = CODE;
+		boolean code = false;
+		boolean comment = false;
+		boolean carriageReturn = false;
+		int line = 1;
+		// Identifier being read in code, and the previous byte of code
+		long word = 0L;
+		int wordLength = 0;
+		int previous = 0;
+		// Last identifier and last byte of code that is not blank
+		long lastWord = 0L;
+		int lastToken = 0;
+		boolean lineStart = true;
+		boolean preprocessor = false;
+		// Line of a && not decided yet, whether it is glued to the previous
+		// token and whether that token is a type
+		int pendingAnd = 0;
+		boolean andGlued = false;
+		boolean andAfterType = false;
+
+		long size = channel.size();
+		for (long position = 0; position < size; position += window) {
+			int length = (int) Math.min(window, size - position);
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+					position, length);
+			for (int i = 0; i < length; i++) {
+				int b = bytes.get(i);
+
+				if (wordLength > 0 && !isIdentifier(b)) {
+					if (decisions != null && !preprocessor
+							&& isDecision(word, wordLength)) {
+						decide(line);
+					}
+					lastWord = word;
+					word = 0L;
+					wordLength = 0;
+				}
+
+				if (b == '\n' || b == '\r') {
+					if (b == '\n' && carriageReturn) {
+						// Second half of a \r\n
+						carriageReturn = false;
+						continue;
+					}
+					if (pendingAnd > 0) {
+						decide(pendingAnd);
+						pendingAnd = 0;
+					}
+					// A directive goes on after a backslash
+					preprocessor = preprocessor && previous == '\\';
+					lineStart = true;
+					previous = 0;
+					carriageReturn = b == '\r';
+					switch (state) {
+					case SLASH:
+						code = true;
+						state = CODE;
+						break;
+					case LINE_COMMENT:
+						state = CODE;
+						break;
+					case LINE_COMMENT_ESCAPE:
+						state = LINE_COMMENT;
+						break;
+					case BLOCK_STAR:
+						comment = true;
+						state = BLOCK_COMMENT;
+						break;
+					case STRING_ESCAPE:
+						state = STRING;
+						break;
+					case STRING:
+					case CHARACTER:
+					case CHARACTER_ESCAPE:
+						// Not terminated
+						state = CODE;
+						break;
+					default:
+						break;
+					}
+					if (code) {
+						codeLines++;
+					}
+					if (comment) {
+						commentLines++;
+					}
+					code = false;
+					comment = false;
+					line++;
+					continue;
+				}
+				carriageReturn = false;
+
+				switch (state) {
+				case SLASH:
+					if (b == '/') {
+						state = LINE_COMMENT;
+						continue;
+					}
+					if (b == '*') {
+						state = BLOCK_COMMENT;
+						continue;
+					}
+					// A division, the byte is code
+					code = true;
+					state = CODE;
+					break;
+				case LINE_COMMENT_ESCAPE:
+					state = LINE_COMMENT;
+					break;
+				case BLOCK_STAR:
+					if (b == '/') {
+						state = CODE;
+						continue;
+					}
+					comment = true;
+					state = BLOCK_COMMENT;
+					break;
+				default:
+					break;
+				}
+
+				switch (state) {
+				case CODE:
+					if (pendingAnd > 0 && decisions != null) {
+						// The byte right after the && follows a null previous
+						if (isBlank(b) ? andGlued && previous == 0
+								: isTypeEnd(b)) {
+							// T&& x or f(T&&)
+							pendingAnd = 0;
+						} else if (!isBlank(b)) {
+							decide(pendingAnd);
+							pendingAnd = 0;
+						}
+					}
+					if (!isBlank(b)) {
+						preprocessor |= lineStart && b == '#';
+						lineStart = false;
+					}
+					if (b == '/') {
+						state = SLASH;
+					} else if (!isBlank(b)) {
+						code = true;
+						if (b == '"') {
+							state = STRING;
+						} else if (b == '\'') {
+							state = CHARACTER;
+						} else if (decisions != null) {
+							int token = b;
+							if (isIdentifier(b)) {
+								// Longer identifiers are no keywords
+								word = wordLength < 8 ? word << 8 | b : -1L;
+								wordLength++;
+							} else if (preprocessor) {
+								// Neither #if nor the conditions of the
+								// directives are decisions
+							} else if (b == '&' && previous == '&') {
+								if (!andAfterType) {
+									pendingAnd = line;
+								}
+								b = 0;
+							} else if (b == '&') {
+								andGlued = previous != 0 && !isBlank(previous);
+								andAfterType = lastToken == '>'
+										|| isIdentifier(lastToken)
+										&& (lastWord == AUTO
+												|| lastWord == CONST);
+							} else if (b == '?' || b == '|' && previous == b) {
+								decide(line);
+								b = 0;
+							}
+							lastToken = token;
+						}
+					}
+					previous = b;
+					break;
+				case LINE_COMMENT:
+					if (b == '\\') {
+						state = LINE_COMMENT_ESCAPE;
+					}
+					if (!isBlank(b)) {
+						comment = true;
+					}
+					break;
+				case BLOCK_COMMENT:
+					if (b == '*') {
+						state = BLOCK_STAR;
+					} else if (!isBlank(b)) {
+						comment = true;
+					}
+					break;
+				case STRING:
+					code = true;
+					if (b == '\\') {
+						state = STRING_ESCAPE;
+					} else if (b == '"') {
+						state = CODE;
+					}
+					break;
+				case STRING_ESCAPE:
+					state = STRING;
+					break;
+				case CHARACTER:
+					code = true;
+					if (b == '\\') {
+						state = CHARACTER_ESCAPE;
+					} else if (b == '\'') {
+						state = CODE;
+					}
+					break;
+				case CHARACTER_ESCAPE:
+					state = CHARACTER;
+					break;
+				default:
+					break;
+				}
+			}
+		}
+
+		// Last line without end of line
+		if (wordLength > 0 && decisions != null && !preprocessor
+				&& isDecision(word, wordLength)) {
+			decide(line);
+		}
+		if (pendingAnd > 0) {
+			decide(pendingAnd);
+		}
+		if (state == SLASH) {
+			code = true;
+		} else if (state == BLOCK_STAR) {
+			comment = true;
+		}
+		if (code) {
+			codeLines++;
+		}
+		if (comment) {
+			commentLines++;
+		}
+	}
+
+	private void decide(int line) {
+		if (line >= decisions.length) {
+			decisions = Arrays.copyOf(decisions, Math.max(line + 1,
+					decisions.length * 2));
+		}
+		decisions[line]++;
+	}
+
+	private static boolean isBlank(int b) {
+		return b == ' ' || b == '\t' || b == '\f' || b == 0x0B;
+	}
+
+	private static boolean isIdentifier(int b) {
+		return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0'
+				&& b <= '9' || b == '_';
+	}
+
+	/**
+	 * Bytes that may follow the && of a type, not an operand.
+	 */
+	private static boolean isTypeEnd(int b) {
+		return b == ')' || b == ',' || b == '>' || b == ';' || b == '.';
+	}
+
+	private static boolean isDecision(long word, int length) {
+		return length <= 5
+				&& (word == IF || word == FOR || word == WHILE
+						|| word == CASE || word == CATCH);
+	}
+
+	/**
+	 * Lines with at least one character of code.
+	 */
+	int getCodeLines() {
+		return codeLines;
+	}
+
+	/**
+	 * Lines with at least one character of comment.
+	 */
+	int getCommentLines() {
+		return commentLines;
+	}
+
+	/**
+	 * Decision points of a line, from 1, when they were counted.
+	 */
+	int getDecisions(int line) {
+		if (decisions == null || line <= 0 || line >= decisions.length) {
+			return 0;
+		}
+		return decisions[line];
+	}
+}
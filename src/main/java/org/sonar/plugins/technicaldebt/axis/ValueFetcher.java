@@ -23,6 +23,16 @@ import org.sonar.api.batch.DecoratorContext;
 
 public interface ValueFetcher {
 
+	/**
+	 * Value returned when the resource does not have what is fetched.
+	 */
+	double NO_VALUE = Double.NaN;
+
+	/**
+	 * Returns {@link #NO_VALUE} when there is nothing to fetch. Fetchers
+	 * written before this constant existed may still throw
+	 * {@link NoCalculation}.
+	 */
 	public double getValue(DecoratorContext context)
 			throws NoCalculation;
 }
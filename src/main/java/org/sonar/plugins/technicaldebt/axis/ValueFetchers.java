@@ -0,0 +1,161 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+import org.sonar.api.measures.Metric;
+
+/**
+ * Fetchers of derived values, built by combining simpler ones. A value that
+ * can not be fetched is {@link ValueFetcher#NO_VALUE}, which propagates
+ * through every operation unless a fallback replaces it.
+ */
+public final class ValueFetchers {
+
+	private ValueFetchers() {
+	}
+
+	/**
+	 * The value of the measure of the resource.
+	 */
+	public static ValueFetcher measure(final Metric metric) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context) {
+				Measure measure = context.getMeasure(metric);
+				return MeasureUtils.hasValue(measure) ? measure.getValue()
+						: NO_VALUE;
+			}
+		};
+	}
+
+	public static ValueFetcher constant(final double value) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context) {
+				return value;
+			}
+		};
+	}
+
+	public static ValueFetcher sum(final ValueFetcher left,
+			final ValueFetcher right) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				return left.getValue(context) + right.getValue(context);
+			}
+		};
+	}
+
+	public static ValueFetcher difference(final ValueFetcher left,
+			final ValueFetcher right) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				return left.getValue(context) - right.getValue(context);
+			}
+		};
+	}
+
+	public static ValueFetcher product(final ValueFetcher left,
+			final ValueFetcher right) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				return left.getValue(context) * right.getValue(context);
+			}
+		};
+	}
+
+	/**
+	 * No value when the denominator is 0.
+	 */
+	public static ValueFetcher ratio(final ValueFetcher numerator,
+			final ValueFetcher denominator) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				double divisor = denominator.getValue(context);
+				if (divisor == 0.0 || Double.isNaN(divisor)) {
+					return NO_VALUE;
+				}
+				return numerator.getValue(context) / divisor;
+			}
+		};
+	}
+
+	public static ValueFetcher min(final ValueFetcher left,
+			final ValueFetcher right) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				return Math.min(left.getValue(context), right.getValue(context));
+			}
+		};
+	}
+
+	public static ValueFetcher max(final ValueFetcher left,
+			final ValueFetcher right) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				return Math.max(left.getValue(context), right.getValue(context));
+			}
+		};
+	}
+
+	/**
+	 * How much the value exceeds the threshold, 0 below it.
+	 */
+	public static ValueFetcher over(ValueFetcher value, ValueFetcher threshold) {
+		return max(difference(value, threshold), constant(0.0));
+	}
+
+	/**
+	 * How much the value falls short of the threshold, 0 above it.
+	 */
+	public static ValueFetcher under(ValueFetcher value, ValueFetcher threshold) {
+		return max(difference(threshold, value), constant(0.0));
+	}
+
+	/**
+	 * The value of the fallback when the first fetcher has none.
+	 */
+	public static ValueFetcher fallback(final ValueFetcher fetcher,
+			final ValueFetcher fallback) {
+		return new ValueFetcher() {
+			public double getValue(DecoratorContext context)
+					throws NoCalculation {
+				double value = fetcher.getValue(context);
+				return Double.isNaN(value) ? fallback.getValue(context) : value;
+			}
+		};
+	}
+
+	/**
+	 * @see MemoizingValueFetcher
+	 */
+	public static ValueFetcher memoize(ValueFetcher fetcher) {
+		return fetcher instanceof MemoizingValueFetcher ? fetcher
+				: new MemoizingValueFetcher(fetcher);
+	}
+}
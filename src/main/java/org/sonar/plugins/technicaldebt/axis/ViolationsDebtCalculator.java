@@ -0,0 +1,171 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.rules.RulePriority;
+
+/**
+ * Debt of the violations, from the number of violations of each severity
+ * that Sonar already aggregates on every resource: the individual
+ * violations are never read. The possible debt is the debt of a major
+ * violation on every line of code.
+ * 
+ * A few lines can hold more violations than that, their actual debt then
+ * exceeds this possible debt. The possible debt is raised to the actual
+ * debt so that such a resource is at a ratio of 100% rather than above: the
+ * ratio of its parents, summed from both debts, stays a share of their
+ * worst case.
+ */
+public final class ViolationsDebtCalculator extends AxisDebtCalculator {
+
+	private static final Metric[] SEVERITY_METRICS = {
+			CoreMetrics.BLOCKER_VIOLATIONS, CoreMetrics.CRITICAL_VIOLATIONS,
+			CoreMetrics.MAJOR_VIOLATIONS, CoreMetrics.MINOR_VIOLATIONS,
+			CoreMetrics.INFO_VIOLATIONS };
+	private static final RulePriority[] SEVERITIES = { RulePriority.BLOCKER,
+			RulePriority.CRITICAL, RulePriority.MAJOR, RulePriority.MINOR,
+			RulePriority.INFO };
+	private static final List<Metric> INPUT_METRICS;
+
+	static {
+		Metric[] metrics = Arrays.copyOf(SEVERITY_METRICS,
+				SEVERITY_METRICS.length + 1);
+		metrics[SEVERITY_METRICS.length] = CoreMetrics.NCLOC;
+		INPUT_METRICS = Collections.unmodifiableList(Arrays.asList(metrics));
+	}
+
+	private static final double WEIGHT_TOLERANCE = 1e-9;
+
+	/** Cost of a violation of each of the severity metrics, in man days */
+	private final double[] costs = new double[SEVERITIES.length];
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ViolationsDebtCalculator(Settings settings) {
+		this(settings, new CostModel(settings));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ViolationsDebtCalculator(Settings settings, CostModel costModel) {
+		super(settings, costModel);
+		for (int i = 0; i < SEVERITIES.length; i++) {
+			costs[i] = costModel.getViolationCost(SEVERITIES[i]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculateActualDebt(DecoratorContext context) {
+		double debt = 0.0;
+		for (int i = 0; i < SEVERITY_METRICS.length; i++) {
+			if (costs[i] != 0.0) {
+				Measure count = context.getMeasure(SEVERITY_METRICS[i]);
+				if (MeasureUtils.hasValue(count)) {
+					debt += count.getValue() * costs[i];
+				}
+			}
+		}
+		return debt;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double calculatePossibleDebt(DecoratorContext context) {
+		return possibleDebt(context, calculateActualDebt(context));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public AxisDebt evaluate(DecoratorContext context) {
+		double actualDebt = calculateActualDebt(context);
+		double possibleDebt = possibleDebt(context, actualDebt);
+		return isApplicable(possibleDebt) ? AxisDebt.of(actualDebt,
+				possibleDebt) : AxisDebt.notApplicable(actualDebt);
+	}
+
+	/**
+	 * The cost of a major violation, as long as the costs of the other
+	 * severities keep their ratio to it: both debts are then proportional
+	 * to it. NaN when a scenario changes the weight of a severity.
+	 */
+	public double linearCost(CostModel model) {
+		double major = model.getViolationCost(RulePriority.MAJOR);
+		double ownMajor = costModel.getViolationCost(RulePriority.MAJOR);
+		if (major == 0.0 || ownMajor == 0.0) {
+			return Double.NaN;
+		}
+		for (int i = 0; i < SEVERITIES.length; i++) {
+			double weight = model.getViolationCost(SEVERITIES[i]) / major;
+			if (Math.abs(weight - costs[i] / ownMajor) > WEIGHT_TOLERANCE
+					* Math.max(weight, 1.0)) {
+				return Double.NaN;
+			}
+		}
+		return major;
+	}
+
+	private double possibleDebt(DecoratorContext context, double actualDebt) {
+		Measure ncloc = context.getMeasure(CoreMetrics.NCLOC);
+		if (!MeasureUtils.hasValue(ncloc)) {
+			return NOT_APPLICABLE;
+		}
+		// Many violations on few lines must not exceed 100%
+		return Math.max(actualDebt, ncloc.getValue()
+				* costModel.getViolationCost(RulePriority.MAJOR));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Metric> dependsOn() {
+		return INPUT_METRICS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean supportsSnapshot() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getName() {
+		return "Violations";
+	}
+}
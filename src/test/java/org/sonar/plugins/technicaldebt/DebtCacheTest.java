@@ -0,0 +1,99 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DebtCacheTest {
+
+  private static final long MODEL = 42L;
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("technicaldebt-cache", ".bin");
+    file.delete();
+    file.deleteOnExit();
+  }
+
+  @Test
+  public void reusesResultsOfPreviousAnalysis() {
+    DebtCache cache = new DebtCache(file, MODEL, 2);
+    cache.load();
+    cache.store("src/a.cc", 1L, new AxisDebt[] {AxisDebt.of(1.5, 3.0), AxisDebt.notApplicable(0.5)});
+    cache.store("src/b.cc", 2L, new AxisDebt[] {AxisDebt.of(0.0, 1.0), AxisDebt.of(2.0, 4.0)});
+    cache.save();
+
+    DebtCache next = new DebtCache(file, MODEL, 2);
+    next.load();
+    AxisDebt[] debts = new AxisDebt[2];
+    assertThat(next.lookup("src/a.cc", 1L, debts), is(true));
+    assertEquals(1.5, debts[0].getActualDebt(), 0.0001);
+    assertEquals(3.0, debts[0].getPossibleDebt(), 0.0001);
+    assertThat(debts[1].isApplicable(), is(false));
+    assertEquals(0.5, debts[1].getActualDebt(), 0.0001);
+
+    assertThat(next.lookup("src/b.cc", 3L, debts), is(false));
+    assertThat(next.lookup("src/c.cc", 1L, debts), is(false));
+  }
+
+  @Test
+  public void ignoresCacheOfAnotherModel() {
+    DebtCache cache = new DebtCache(file, MODEL, 1);
+    cache.store("src/a.cc", 1L, new AxisDebt[] {AxisDebt.of(1.5, 3.0)});
+    cache.save();
+
+    DebtCache next = new DebtCache(file, MODEL + 1, 1);
+    next.load();
+    assertThat(next.lookup("src/a.cc", 1L, new AxisDebt[1]), is(false));
+  }
+
+  @Test
+  public void fingerprintDependsOnMeasureValues() {
+    Metric[] metrics = {CoreMetrics.COMPLEXITY, CoreMetrics.COVERAGE};
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(new Measure(CoreMetrics.COMPLEXITY, 12.0));
+    long withoutCoverage = DebtCache.fingerprint(context, metrics);
+
+    when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(new Measure(CoreMetrics.COVERAGE, 50.0));
+    long withCoverage = DebtCache.fingerprint(context, metrics);
+
+    assertThat(withCoverage, not(is(withoutCoverage)));
+    assertThat(DebtCache.fingerprint(context, metrics), is(withCoverage));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.resources.File;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DebtExportTest {
+
+  private static final String[] AXES = {"Complexity", "Coverage"};
+
+  private java.io.File file;
+  private DebtVector vector;
+
+  @Before
+  public void setUp() throws IOException {
+    file = java.io.File.createTempFile("technicaldebt-export", ".txt");
+    file.deleteOnExit();
+    vector = new DebtVector(AXES);
+    vector.set(0, AxisDebt.of(1.0, 4.0));
+    vector.set(1, AxisDebt.notApplicable(2.0));
+  }
+
+  @Test
+  public void writesOneJsonObjectPerLine() throws IOException {
+    DebtExport export = new DebtExport(file, DebtExport.NDJSON, AXES, 500.0);
+    export.write(new File("src/a.cc"), vector);
+    export.write(new File("src/b\".cc"), new DebtVector(AXES));
+    export.close();
+
+    assertThat(Files.toString(file, Charsets.UTF_8), is(
+        "{\"key\":\"src/a.cc\",\"scope\":\"FIL\",\"days\":1.0,\"cost\":500.0,\"ratio\":25.0,"
+          + "\"axes\":{\"Complexity\":{\"actual\":1.0,\"possible\":4.0},\"Coverage\":{\"actual\":0.0,\"possible\":0.0}}}\n"
+          + "{\"key\":\"src/b\\\".cc\",\"scope\":\"FIL\",\"days\":0.0,\"cost\":0.0,\"ratio\":null,"
+          + "\"axes\":{\"Complexity\":{\"actual\":0.0,\"possible\":0.0},\"Coverage\":{\"actual\":0.0,\"possible\":0.0}}}\n"));
+  }
+
+  @Test
+  public void writesCsvWithHeader() throws IOException {
+    DebtExport export = new DebtExport(file, DebtExport.CSV, AXES, 500.0);
+    export.write(new File("src/a,b.cc"), vector);
+    export.close();
+
+    assertThat(Files.toString(file, Charsets.UTF_8), is(
+        "key,scope,days,cost,ratio,Complexity.actual,Complexity.possible,Coverage.actual,Coverage.possible\n"
+          + "\"src/a,b.cc\",FIL,1.0,500.0,25.0,1.0,4.0,0.0,0.0\n"));
+  }
+
+  @Test
+  public void flushesRecordsLargerThanTheBuffer() throws IOException {
+    DebtExport export = new DebtExport(file, DebtExport.CSV, AXES, 500.0);
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      key.append("src/\u00e9");
+    }
+    for (int i = 0; i < 10; i++) {
+      export.write(new File(key.toString()), vector);
+    }
+    export.close();
+
+    String[] lines = Files.toString(file, Charsets.UTF_8).split("\n");
+    assertThat(lines.length, is(11));
+    assertThat(lines[10].startsWith(key.toString() + ",FIL,1.0"), is(true));
+  }
+
+  @Test
+  public void writesToRelativePath() throws IOException {
+    java.io.File relative = new java.io.File(file.getName() + ".ndjson");
+    try {
+      DebtExport export = new DebtExport(relative, DebtExport.NDJSON, AXES, 500.0);
+      export.write(new File("src/a.cc"), vector);
+      export.close();
+
+      assertThat(Files.toString(relative, Charsets.UTF_8).startsWith("{\"key\":\"src/a.cc\""), is(true));
+    } finally {
+      relative.delete();
+    }
+  }
+}
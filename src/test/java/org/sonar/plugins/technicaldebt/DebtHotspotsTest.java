@@ -0,0 +1,67 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DebtHotspotsTest {
+
+  private static final String[] AXES = {"Complexity", "Coverage"};
+
+  @Test
+  public void keepsWorstFiles() {
+    DebtHotspots hotspots = new DebtHotspots(AXES, 3);
+    double[] debts = {0.5, 4.0, 0.0, 2.0, 8.0, 1.0, 3.0};
+    for (int i = 0; i < debts.length; i++) {
+      hotspots.offerTotal("file" + i, debts[i]);
+    }
+    hotspots.offerAxis(1, "file1", 0.25);
+
+    assertThat(hotspots.format(), is("Total\t8.0\tfile4\nTotal\t4.0\tfile1\nTotal\t3.0\tfile6\nCoverage\t0.25\tfile1\n"));
+  }
+
+  @Test
+  public void mergesHotspotsOfModules() {
+    DebtHotspots module = new DebtHotspots(AXES, 2);
+    module.offerTotal("module:a.cc", 5.0);
+    module.offerAxis(0, "module:a.cc", 5.0);
+
+    DebtHotspots project = new DebtHotspots(AXES, 2);
+    project.offerTotal("project:b.cc", 1.0);
+    project.offerTotal("project:c.cc", 2.0);
+    project.add(module.format());
+    project.add("Unknown\t9.0\tmodule:d.cc\n");
+
+    assertThat(project.format(), is("Total\t5.0\tmodule:a.cc\nTotal\t2.0\tproject:c.cc\nComplexity\t5.0\tmodule:a.cc\n"));
+  }
+
+  @Test
+  public void ignoresFilesWithoutDebt() {
+    DebtHotspots hotspots = new DebtHotspots(AXES, 2);
+    hotspots.offerTotal("a.cc", 0.0);
+    hotspots.offerTotal("b.cc", Double.NaN);
+
+    assertThat(hotspots.isEmpty(), is(true));
+    assertThat(hotspots.format(), is(""));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.sonar.api.resources.Scopes;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DebtInstrumentationTest {
+
+  @Test
+  public void countsAxesAndResources() {
+    DebtInstrumentation instrumentation = new DebtInstrumentation("project", new String[] {"Complexity", "Coverage"});
+    instrumentation.axisEvaluated(1, 100L);
+    instrumentation.axisEvaluated(1, 50L);
+    instrumentation.axisNotApplicable(0);
+    instrumentation.resourceDecorated(Scopes.FILE, 1500L, true);
+    instrumentation.resourceDecorated(Scopes.FILE, 1024L, false);
+    instrumentation.resourceDecorated(Scopes.PROJECT, 3L, false);
+
+    assertThat(instrumentation.getResources(), is(3L));
+    assertThat(instrumentation.getZeroDebtResources(), is(1L));
+    assertThat(instrumentation.getAxisEvaluations()[1], is(2L));
+    assertThat(instrumentation.getAxisNanos()[1], is(150L));
+    assertThat(instrumentation.getAxisNotApplicable()[0], is(1L));
+    assertThat(instrumentation.getReport().contains(
+        "{\"scope\": \"FIL\", \"resources\": 2, \"nanos\": 2524, \"histogram\": {\"1024\": 2}}"), is(true));
+    assertThat(instrumentation.getReport().contains("\"histogram\": {\"2\": 1}"), is(true));
+  }
+
+  @Test
+  public void isExposedThroughJmxDuringAnalysis() throws Exception {
+    DebtInstrumentation instrumentation = new DebtInstrumentation("org:jmx \"module\"", new String[0]);
+    ObjectName name = new ObjectName("org.sonar.plugins.technicaldebt:type=Instrumentation,module="
+      + ObjectName.quote("org:jmx \"module\""));
+
+    instrumentation.register();
+    instrumentation.resourceDecorated(Scopes.FILE, 10L, false);
+    assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Resources"), is((Object) 1L));
+
+    instrumentation.unregister();
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name), is(false));
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.plugins.cxx.distance.DistanceMetrics;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityToCoverFetcher;
+import org.sonar.plugins.technicaldebt.axis.CoverageDebtCalculator;
+
+import com.google.common.collect.Lists;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DebtPrecomputerTest {
+
+  private Project project;
+  private List<AxisDebtCalculator> axes;
+  private SonarIndex index;
+
+  @Before
+  public void setUp() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    project = new Project("project");
+    axes = Arrays.<AxisDebtCalculator> asList(new ComplexityDebtCalculator(settings),
+        new CoverageDebtCalculator(settings, new ComplexityToCoverFetcher()));
+    index = mock(SonarIndex.class);
+  }
+
+  @Test
+  public void precomputesSameDebtAsSerialEvaluation() {
+    assertSameDebtAsSerialEvaluation(new DebtPrecomputer(axes, 4));
+  }
+
+  @Test
+  public void precomputesOffHeap() {
+    assertSameDebtAsSerialEvaluation(new DebtPrecomputer(axes, 4, true));
+  }
+
+  private void assertSameDebtAsSerialEvaluation(DebtPrecomputer precomputer) {
+    List<Resource> files = Lists.newArrayList();
+    List<DecoratorContext> contexts = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      File file = new File("src/File" + i + ".cc");
+      DecoratorContext context = mock(DecoratorContext.class);
+      measure(file, context, CoreMetrics.COMPLEXITY, 1.0 + i % 40);
+      measure(file, context, CoreMetrics.COVERAGE, i % 100);
+      if (i % 3 != 0) {
+        measure(file, context, DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, i % 7);
+      }
+      if (i % 5 != 0) {
+        measure(file, context, CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, "1=" + i % 9 + ";12=" + i % 2);
+      }
+      files.add(file);
+      contexts.add(context);
+    }
+
+    precomputer.precompute(index, files, project);
+
+    for (int i = 0; i < files.size(); i++) {
+      AxisDebt[] debts = new AxisDebt[axes.size()];
+      precomputer.lookup(files.get(i), contexts.get(i), debts);
+      AxisDebt expected = axes.get(0).evaluate(contexts.get(i));
+      assertThat(debts[0].isApplicable(), is(expected.isApplicable()));
+      assertEquals(expected.getActualDebt(), debts[0].getActualDebt(), 0.0);
+      assertEquals(expected.getPossibleDebt(), debts[0].getPossibleDebt(), 0.0);
+      // Coverage is saved by a decorator, it is left to the decorator
+      assertThat(debts[1], nullValue());
+    }
+  }
+
+  @Test
+  public void precomputesOnlyAxesReadingSensorMeasures() {
+    assertThat(DebtPrecomputer.isPrecomputable(axes.get(0)), is(true));
+    assertThat(DebtPrecomputer.isPrecomputable(axes.get(1)), is(false));
+    assertThat(DebtPrecomputer.supports(axes.subList(1, 2)), is(false));
+  }
+
+  @Test
+  public void reevaluatesAxesWhoseInputWasSavedSinceSnapshot() {
+    File foo = new File("src/Foo.cc");
+    DecoratorContext fooContext = mock(DecoratorContext.class);
+    measure(foo, fooContext, DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, 10.0);
+    File bar = new File("src/Bar.cc");
+    DecoratorContext barContext = mock(DecoratorContext.class);
+    measure(bar, barContext, DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, 10.0);
+    DebtPrecomputer precomputer = new DebtPrecomputer(axes, 1);
+    precomputer.precompute(index, Arrays.<Resource> asList(foo, bar), project);
+
+    // Saved after the snapshot
+    when(fooContext.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(new Measure(CoreMetrics.COMPLEXITY, 40.0));
+
+    AxisDebt[] debts = new AxisDebt[axes.size()];
+    precomputer.lookup(foo, fooContext, debts);
+    assertThat(debts[0], nullValue());
+    debts = new AxisDebt[axes.size()];
+    precomputer.lookup(bar, barContext, debts);
+    assertThat(debts[0], notNullValue());
+  }
+
+  @Test
+  public void leavesAxesSavingMeasuresToTheDecorator() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    List<AxisDebtCalculator> savingAxes = Arrays.<AxisDebtCalculator> asList(new ComplexityDebtCalculator(settings),
+        new SavingAxis(settings));
+    File foo = new File("src/Foo.cc");
+    DecoratorContext fooContext = mock(DecoratorContext.class);
+    measure(foo, fooContext, DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, 10.0);
+    measure(foo, fooContext, CoreMetrics.LINES, 100.0);
+    DebtPrecomputer precomputer = new DebtPrecomputer(savingAxes, 1);
+    precomputer.precompute(index, Arrays.<Resource> asList(foo), project);
+
+    AxisDebt[] debts = new AxisDebt[savingAxes.size()];
+    precomputer.lookup(foo, fooContext, debts);
+    assertThat(debts[0], notNullValue());
+    assertThat(debts[1], nullValue());
+  }
+
+  @Test
+  public void leavesUnknownFilesToTheDecorator() {
+    DebtPrecomputer precomputer = new DebtPrecomputer(axes, 1);
+    precomputer.precompute(index, Arrays.<Resource> asList(new File("src/Foo.cc")), project);
+
+    AxisDebt[] debts = new AxisDebt[axes.size()];
+    precomputer.lookup(new File("src/Bar.cc"), mock(DecoratorContext.class), debts);
+    assertThat(debts[0], nullValue());
+    assertThat(debts[1], nullValue());
+  }
+
+  private static final class SavingAxis extends AxisDebtCalculator {
+
+    SavingAxis(Settings settings) {
+      super(settings);
+    }
+
+    public double calculateActualDebt(DecoratorContext context) {
+      context.saveMeasure(new Measure(CoreMetrics.NCLOC, 80.0));
+      return 1.0;
+    }
+
+    public double calculatePossibleDebt(DecoratorContext context) {
+      return 2.0;
+    }
+
+    public List<Metric> dependsOn() {
+      return Arrays.<Metric> asList(CoreMetrics.LINES);
+    }
+
+    public boolean supportsSnapshot() {
+      return true;
+    }
+
+    public String getName() {
+      return "Saving";
+    }
+  }
+
+  private void measure(File file, DecoratorContext context, Metric metric, double value) {
+    measure(file, context, new Measure(metric, value));
+  }
+
+  private void measure(File file, DecoratorContext context, Metric metric, String data) {
+    measure(file, context, new Measure(metric, data));
+  }
+
+  private void measure(File file, DecoratorContext context, Measure measure) {
+    when(index.getMeasure(file, measure.getMetric())).thenReturn(measure);
+    when(context.getMeasure(measure.getMetric())).thenReturn(measure);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
+import org.sonar.plugins.technicaldebt.axis.DesignDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DuplicationDebtCalculator;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class DebtScenariosTest {
+
+  private static final String[] AXES = {"Complexity", "Duplication"};
+
+  @Test
+  public void scalesDebtOfEachAxisByItsCost() {
+    Settings settings = new Settings();
+    settings.setProperty(TechnicalDebtPlugin.SCENARIOS, "cheap");
+    settings.setProperty(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS, 2.0);
+    settings.setProperty("technicaldebt.scenario.cheap.dupli.blocks", 1.0);
+    settings.setProperty("technicaldebt.scenario.cheap.daily.rate", 100.0);
+    CostModel costModel = new CostModel(settings);
+    List<AxisDebtCalculator> axes = Arrays.<AxisDebtCalculator> asList(
+        new ComplexityDebtCalculator(settings, costModel),
+        new DuplicationDebtCalculator(settings, costModel));
+    DebtScenarios scenarios = new DebtScenarios(settings, costModel, axes, AXES);
+
+    DebtVector vector = new DebtVector(AXES);
+    vector.set(0, AxisDebt.of(1.0, 4.0));
+    vector.set(1, AxisDebt.of(2.0, 4.0));
+    scenarios.evaluate(vector);
+
+    String report = scenarios.getReport("project");
+    assertThat(report, containsString("{\"name\": \"analysis\", \"dailyRate\": "
+        + TechnicalDebtPlugin.DAILY_RATE_DEFVAL + ", \"days\": 3.0"));
+    assertThat(report, containsString("{\"name\": \"cheap\", \"dailyRate\": 100.0, \"days\": 2.0, \"cost\": 200.0, \"ratio\": 33.33"));
+    assertThat(report, containsString("\"axes\": {\"Complexity\": 1.0, \"Duplication\": 1.0}"));
+  }
+
+  @Test
+  public void keepsDebtOfAxesThatCanNotBeScaled() {
+    Settings settings = new Settings();
+    settings.setProperty(TechnicalDebtPlugin.SCENARIOS, "free,split,design");
+    settings.setProperty(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS, 0.0);
+    settings.setProperty("technicaldebt.scenario.free.dupli.blocks", 1.0);
+    settings.setProperty(CostModel.scenarioKey("split", TechnicalDebtPlugin.COST_SPLIT_COHESION), 100.0);
+    settings.setProperty(CostModel.scenarioKey("design", TechnicalDebtPlugin.COST_SPLIT_COHESION),
+        2 * TechnicalDebtPlugin.COST_SPLIT_COHESION_DEFVAL);
+    settings.setProperty(CostModel.scenarioKey("design", TechnicalDebtPlugin.COST_CUT_EDGE),
+        2 * TechnicalDebtPlugin.COST_CUT_EDGE_DEFVAL);
+    CostModel costModel = new CostModel(settings);
+    List<AxisDebtCalculator> axes = Arrays.<AxisDebtCalculator> asList(
+        new DesignDebtCalculator(settings, costModel, null),
+        new DuplicationDebtCalculator(settings, costModel));
+    String[] names = {"Design", "Duplication"};
+    DebtScenarios scenarios = new DebtScenarios(settings, costModel, axes, names);
+
+    DebtVector vector = new DebtVector(names);
+    vector.set(0, AxisDebt.of(1.0, 4.0));
+    vector.set(1, AxisDebt.of(0.0, 0.0));
+    scenarios.evaluate(vector);
+
+    String report = scenarios.getReport("project");
+    assertThat(report, not(containsString("Infinity")));
+    assertThat(report, not(containsString("NaN")));
+    assertThat(report, containsString("\"name\": \"free\", \"dailyRate\": " + TechnicalDebtPlugin.DAILY_RATE_DEFVAL
+        + ", \"days\": 1.0"));
+    assertThat(report, containsString("\"name\": \"split\", \"dailyRate\": " + TechnicalDebtPlugin.DAILY_RATE_DEFVAL
+        + ", \"days\": 1.0"));
+    assertThat(report, containsString("\"name\": \"design\", \"dailyRate\": " + TechnicalDebtPlugin.DAILY_RATE_DEFVAL
+        + ", \"days\": 2.0"));
+  }
+}
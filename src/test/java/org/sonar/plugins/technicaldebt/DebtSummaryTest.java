@@ -0,0 +1,46 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DebtSummaryTest {
+
+  @Test
+  public void holdsFlagsAndRepartition() {
+    assertThat(DebtSummary.format(true, false, "Complexity=20.0;Coverage=80.0", ""),
+        is("coverage=true;design=false|Complexity=20.0;Coverage=80.0"));
+  }
+
+  @Test
+  public void holdsEmptyRepartition() {
+    assertThat(DebtSummary.format(false, true, "", ""),
+        is("coverage=false;design=true|"));
+  }
+
+  @Test
+  public void appendsHotspots() {
+    assertThat(DebtSummary.format(false, false, "Complexity=100.0", "Total\t1.5\tproject:src/Foo.cc"),
+        is("coverage=false;design=false|Complexity=100.0|Total\t1.5\tproject:src/Foo.cc"));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import org.junit.Test;
+import org.sonar.plugins.technicaldebt.axis.AxisDebt;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class DebtVectorTest {
+
+  private static final String[] AXES = {"Complexity", "Coverage", "Duplication"};
+
+  @Test
+  public void countsOnlyApplicableAxes() {
+    DebtVector vector = new DebtVector(AXES);
+    vector.set(0, AxisDebt.notApplicable(2.0));
+    vector.set(1, AxisDebt.of(1.5, 6.0));
+    vector.set(2, AxisDebt.of(0.5, 2.0));
+
+    assertEquals(2.0, vector.getTotalActualDebt(), 0.0001);
+    assertEquals(8.0, vector.getTotalPossibleDebt(), 0.0001);
+    assertThat(vector.format(), is("Coverage=1.5:6.0;Duplication=0.5:2.0"));
+  }
+
+  @Test
+  public void sumsFormattedVectors() {
+    DebtVector vector = new DebtVector(AXES);
+    vector.add("Coverage=1.5:6.0;Duplication=0.5:2.0");
+    vector.add("Complexity=0.25:1.0;Coverage=0.5:2.0;Unknown=3.0:3.0");
+    vector.add("");
+
+    assertEquals(0.25, vector.getActualDebt(0), 0.0001);
+    assertEquals(2.0, vector.getActualDebt(1), 0.0001);
+    assertEquals(8.0, vector.getPossibleDebt(1), 0.0001);
+    assertEquals(0.5, vector.getActualDebt(2), 0.0001);
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt;
+
+import org.junit.Test;
+import org.sonar.api.measures.PropertiesBuilder;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RepartitionEncoderTest {
+
+  private static final String[] AXES = {"Duplication", "Complexity", "Coverage"};
+
+  @Test
+  public void encodesLikePropertiesBuilder() {
+    RepartitionEncoder encoder = new RepartitionEncoder(AXES);
+    encoder.set(0, 12.3456);
+    encoder.set(1, 0.0);
+    encoder.set(2, 87.6543);
+
+    PropertiesBuilder<String, Double> builder = new PropertiesBuilder<String, Double>(
+        TechnicalDebtMetrics.TECHNICAL_DEBT_REPARTITION);
+    builder.add("Duplication", 12.34);
+    builder.add("Coverage", 87.65);
+
+    assertThat(encoder.encode(), is("Coverage=87.65;Duplication=12.34"));
+    assertThat(encoder.encode(), is(builder.build().getData()));
+  }
+
+  @Test
+  public void isReusedForEveryResource() {
+    RepartitionEncoder encoder = new RepartitionEncoder(AXES);
+    encoder.set(1, 100.0);
+    assertThat(encoder.encode(), is("Complexity=100.0"));
+
+    encoder.clear();
+    assertThat(encoder.encode(), is(""));
+    encoder.set(2, Double.NaN);
+    assertThat(encoder.encode(), is(""));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasuresFilters;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.plugins.technicaldebt.axis.MeasureSnapshot;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotDecoratorContextTest {
+
+  private SnapshotDecoratorContext context;
+
+  @Before
+  public void setUp() {
+    File file = new File("src/Foo.cc");
+    MeasureSnapshot snapshot = new MeasureSnapshot(new Metric[] {CoreMetrics.LINES, CoreMetrics.COMPLEXITY}, 1,
+        file.getKey().length(), false);
+    int row = snapshot.add(file.getKey());
+    snapshot.set(row, 0, new Measure(CoreMetrics.LINES, 120.0));
+    context = new SnapshotDecoratorContext(new Project("project"), snapshot).reset(file, row);
+  }
+
+  @Test
+  public void readsMeasuresOfTheSnapshot() {
+    assertThat(context.getMeasure(CoreMetrics.LINES).getValue(), is(120.0));
+    assertThat(context.getMeasure(CoreMetrics.COMPLEXITY), nullValue());
+    assertThat(context.getMeasures(MeasuresFilters.metric(CoreMetrics.LINES)).getValue(), is(120.0));
+    assertThat(context.getMeasures(MeasuresFilters.metric(CoreMetrics.COMPLEXITY)), nullValue());
+  }
+
+  @Test
+  public void reusesMeasuresBetweenReads() {
+    assertThat(context.getMeasure(CoreMetrics.LINES) == context.getMeasure(CoreMetrics.LINES), is(true));
+  }
+
+  @Test
+  public void filesHaveNoChildren() {
+    assertThat(context.getChildren().isEmpty(), is(true));
+    assertThat(context.getChildrenMeasures(CoreMetrics.LINES).isEmpty(), is(true));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void failsOnMetricsOutOfTheSnapshot() {
+    context.getMeasure(CoreMetrics.COVERAGE);
+  }
+
+  @Test
+  public void ignoresAndRecordsWrites() {
+    assertThat(context.resetWritten(), is(false));
+    context.saveMeasure(new Measure(CoreMetrics.COVERAGE, 50.0));
+    assertThat(context.resetWritten(), is(true));
+    assertThat(context.resetWritten(), is(false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void failsOnDependencies() {
+    context.getIncomingDependencies();
+  }
+}
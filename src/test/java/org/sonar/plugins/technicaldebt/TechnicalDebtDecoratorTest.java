@@ -20,23 +20,63 @@
 
 package org.sonar.plugins.technicaldebt;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.resources.Resource;
+import org.sonar.plugins.cxx.distance.DistanceMetrics;
+import org.sonar.plugins.technicaldebt.axis.AxisDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.AxisRegistry;
+import org.sonar.plugins.technicaldebt.axis.CommentsDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.ComplexityToCoverFetcher;
+import org.sonar.plugins.technicaldebt.axis.CostModel;
+import org.sonar.plugins.technicaldebt.axis.CoverageDebtCalculator;
+import org.sonar.plugins.technicaldebt.axis.DuplicationDebtCalculator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TechnicalDebtDecoratorTest {
 
   private TechnicalDebtDecorator decorator;
+  private Project project;
+  private java.io.File workingDir;
 
   @Before
-  public void setUp() {
-    decorator = new TechnicalDebtDecorator(new Settings(), new Project("project"));
+  public void setUp() throws IOException {
+    workingDir = java.io.File.createTempFile("technicaldebt", "");
+    workingDir.delete();
+    workingDir.deleteOnExit();
+    ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+    when(fileSystem.getSonarWorkingDirectory()).thenReturn(workingDir);
+    project = new Project("project").setFileSystem(fileSystem);
+    decorator = newDecorator(new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class)), project, mock(SonarIndex.class));
   }
 
   @Test
@@ -46,11 +86,438 @@ public class TechnicalDebtDecoratorTest {
 
   @Test
   public void generatesMetrics() {
-    assertThat(decorator.generatesMetrics().size(), is(4));
+    assertThat(decorator.generatesMetrics().size(), is(7));
+  }
+
+  @Test
+  public void shouldExecuteOnCxxModules() {
+    assertThat(decorator.shouldExecuteOnProject(module("c++", true)), is(true));
+  }
+
+  @Test
+  public void shouldNotExecuteOnModulesOfOtherLanguages() {
+    assertThat(decorator.shouldExecuteOnProject(module("java", true)), is(false));
+  }
+
+  @Test
+  public void shouldNotExecuteOnModulesWithoutSources() {
+    assertThat(decorator.shouldExecuteOnProject(module("c++", false)), is(false));
+  }
+
+  @Test
+  public void shouldExecuteOnAggregatorsOfCxxModules() {
+    Project root = module("java", false);
+    module("java", true).setParent(root);
+    assertThat(decorator.shouldExecuteOnProject(root), is(false));
+
+    module("c++", true).setParent(root);
+    assertThat(decorator.shouldExecuteOnProject(root), is(true));
+  }
+
+  @Test
+  public void shouldExecuteOnAnyLanguageWhenNoneIsSet() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.LANGUAGES, "");
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    assertThat(decorator.shouldExecuteOnProject(module("java", true)), is(true));
+  }
+
+  @Test
+  public void dependsOnlyOnMetricsOfEnabledAxes() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.COMPLEXITY_AXIS_ENABLED, false);
+    settings.setProperty(TechnicalDebtPlugin.COVERAGE_AXIS_ENABLED, false);
+    decorator = newDecorator(settings, new Project("project"), mock(SonarIndex.class));
+
+    assertThat(decorator.dependsOnMetrics().contains(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH), is(false));
+    assertThat(decorator.dependsOnMetrics().contains(CoreMetrics.COVERAGE), is(false));
+    assertThat(decorator.dependsOnMetrics().contains(CoreMetrics.DUPLICATED_BLOCKS), is(true));
+  }
+
+  @Test
+  public void shouldNotExecuteWithoutAxis() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    decorator = new TechnicalDebtDecorator(settings, new Project("project"), mock(SonarIndex.class), new AxisRegistry(
+        settings), new CostModel(settings));
+
+    assertThat(decorator.shouldExecuteOnProject(mock(Project.class)), is(false));
+  }
+
+  @Test
+  public void evaluatesEachAxisOnce() {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+    when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(new Measure(CoreMetrics.COVERAGE, 50.0));
+    when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(new Measure(CoreMetrics.COMPLEXITY, 20.0));
+    when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, 2.0));
+    when(context.getMeasure(CoreMetrics.LINES)).thenReturn(new Measure(CoreMetrics.LINES, 300.0));
+
+    decorator.decorate(context.getResource(), context);
+
+    verify(context, times(1)).getMeasure(CoreMetrics.COVERAGE);
+    verify(context, times(1)).getMeasure(CoreMetrics.DUPLICATED_BLOCKS);
+  }
+
+  @Test
+  public void writesInstrumentationReport() throws IOException {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.INSTRUMENTATION, true);
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+
+    decorator.decorate(project, context);
+
+    String report = Files.toString(new java.io.File(workingDir, "technicaldebt-report.json"), Charsets.UTF_8);
+    assertThat(report.contains("\"module\": \"project\""), is(true));
+    assertThat(report.contains("\"resources\": 1,"), is(true));
+    assertThat(report.contains("\"name\": \"Coverage\", \"evaluations\": 1"), is(true));
+    assertThat(report.contains("\"scope\": \"PRJ\", \"resources\": 1"), is(true));
+  }
+
+  @Test
+  public void instrumentsOnlyOnDemand() {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+
+    decorator.decorate(project, context);
+
+    assertThat(new java.io.File(workingDir, "technicaldebt-report.json").exists(), is(false));
   }
 
   @Test
-  public void shouldExecuteOnAnyProject() {
-    assertThat(decorator.shouldExecuteOnProject(mock(Project.class)), is(true));
+  public void writesScenarioReport() throws IOException {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.ROLLUP, true);
+    settings.setProperty(TechnicalDebtPlugin.SCENARIOS, "expensive");
+    settings.setProperty(CostModel.scenarioKey("expensive", TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY), 2.0
+        * TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL);
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+    when(context.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)).thenReturn(Arrays.asList(
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Complexity=1.0:2.0;Coverage=0.5:4.0")));
+
+    decorator.decorate(project, context);
+
+    String report = Files.toString(new java.io.File(workingDir, "technicaldebt-scenarios.json"), Charsets.UTF_8);
+    assertThat(report.contains("\"name\": \"analysis\""), is(true));
+    assertThat(report.contains("\"name\": \"expensive\""), is(true));
+    assertThat(report.contains("\"Complexity\": 1.0, \"Coverage\": 1.0"), is(true));
+  }
+
+  @Test
+  public void exportsDecoratedResources() throws IOException {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.ROLLUP, true);
+    settings.setProperty(TechnicalDebtPlugin.EXPORT, "csv");
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+    when(context.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)).thenReturn(Arrays.asList(
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Complexity=1.0:2.0;Coverage=0.5:4.0")));
+
+    decorator.decorate(project, context);
+
+    List<String> lines = Files.readLines(new java.io.File(workingDir, "technicaldebt-export.csv"), Charsets.UTF_8);
+    assertThat(lines.size(), is(2));
+    assertThat(lines.get(1).startsWith("project,PRJ,1.5,"), is(true));
+  }
+
+  @Test
+  public void exportsEachModuleToItsOwnFile() throws IOException {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.EXPORT, "csv");
+    settings.setProperty(TechnicalDebtPlugin.EXPORT_PATH, new java.io.File(workingDir, "debt.csv").getPath());
+    Project root = new Project("root").setFileSystem(project.getFileSystem());
+    Project module = new Project("module").setFileSystem(project.getFileSystem()).setParent(root);
+
+    for (Project decorated : Arrays.asList(module, root)) {
+      DecoratorContext context = mock(DecoratorContext.class);
+      when(context.getResource()).thenReturn(decorated);
+      newDecorator(settings, decorated, mock(SonarIndex.class)).decorate(decorated, context);
+    }
+
+    assertThat(Files.readLines(new java.io.File(workingDir, "debt-module.csv"), Charsets.UTF_8).get(1).startsWith("module,"),
+        is(true));
+    assertThat(Files.readLines(new java.io.File(workingDir, "debt-root.csv"), Charsets.UTF_8).get(1).startsWith("root,"),
+        is(true));
+  }
+
+  @Test
+  public void sumsChildrenInRollupMode() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.ROLLUP, true);
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+    when(context.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)).thenReturn(Arrays.asList(
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Complexity=1.0:2.0;Coverage=0.5:4.0"),
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Coverage=1.5:2.0")));
+
+    decorator.decorate(project, context);
+
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 3.0);
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_RATIO, 37.5);
+    verify(context, times(0)).getMeasure(CoreMetrics.COMPLEXITY);
+  }
+
+  @Test
+  public void sumsChildrenOfAxesThatRollUp() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.DUPLICATION_PRECISE, true);
+    CostModel costModel = new CostModel(settings);
+    AxisRegistry registry = new AxisRegistry(settings, new AxisDebtCalculator[] {
+      new ComplexityDebtCalculator(settings, costModel),
+      new DuplicationDebtCalculator(settings, costModel)});
+    decorator = new TechnicalDebtDecorator(settings, project, mock(SonarIndex.class), registry, costModel);
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+    when(context.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)).thenReturn(Arrays.asList(
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Complexity=5.0:10.0;Duplication=1.0:4.0"),
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Duplication=0.5:2.0")));
+
+    decorator.decorate(project, context);
+
+    verify(context, times(0)).getMeasure(CoreMetrics.DUPLICATIONS_DATA);
+    verify(context, times(1)).getMeasure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH);
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 1.5);
+  }
+
+  @Test
+  public void keepsMeasuredCommentsOfDirectoriesAndProjects() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.SCOPES, "PRJ,DIR");
+    CostModel costModel = new CostModel(settings);
+    AxisRegistry registry = new AxisRegistry(settings, new AxisDebtCalculator[] {
+      new CommentsDebtCalculator(settings, costModel)});
+    decorator = new TechnicalDebtDecorator(settings, project, mock(SonarIndex.class), registry, costModel);
+
+    DecoratorContext fileContext = mock(DecoratorContext.class);
+    File file = new File("src/Foo.cpp");
+    when(fileContext.getResource()).thenReturn(file);
+    Directory directory = new Directory("src");
+    DecoratorContext directoryContext = comments(directory, 0.0, 30.0);
+    when(directoryContext.getChildrenMeasures(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)).thenReturn(Arrays.asList(
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Comments=0.0:1.0")));
+    DecoratorContext projectContext = comments(project, 10.0, 60.0);
+
+    decorator.decorate(file, fileContext);
+    decorator.decorate(directory, directoryContext);
+    decorator.decorate(project, projectContext);
+
+    double cost = TechnicalDebtPlugin.COST_UNCOMMENTED_LINE_DEFVAL / 8.0;
+    verify(fileContext, times(0)).getMeasure(CoreMetrics.COMMENT_LINES);
+    // 10 and 20 lines of comments are expected
+    verify(directoryContext, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 10 * cost);
+    verify(projectContext, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 10 * cost);
+  }
+
+  private static DecoratorContext comments(Resource resource, double comments, double ncloc) {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(resource);
+    when(context.getMeasure(CoreMetrics.COMMENT_LINES)).thenReturn(new Measure(CoreMetrics.COMMENT_LINES, comments));
+    when(context.getMeasure(CoreMetrics.NCLOC)).thenReturn(new Measure(CoreMetrics.NCLOC, ncloc));
+    return context;
+  }
+
+  @Test
+  public void skipsScopesWithoutMeasures() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.SCOPES, "PRJ,FIL");
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    Directory directory = new Directory("src");
+    when(context.getResource()).thenReturn(directory);
+
+    decorator.decorate(directory, context);
+
+    verify(context, times(0)).getMeasure(CoreMetrics.COVERAGE);
+    verify(context, times(0)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 0.0);
+  }
+
+  @Test
+  public void derivesSkippedDirectoriesInRollupMode() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.ROLLUP, true);
+    settings.setProperty(TechnicalDebtPlugin.SCOPES, "PRJ,FIL");
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+
+    DecoratorContext fileContext = mock(DecoratorContext.class);
+    when(fileContext.getResource()).thenReturn(new File("src/Foo.cpp"));
+    when(fileContext.getMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES)).thenReturn(
+        new Measure(TechnicalDebtMetrics.TECHNICAL_DEBT_AXES, "Coverage=1.5:2.0"));
+    DecoratorContext directoryContext = mock(DecoratorContext.class);
+    when(directoryContext.getResource()).thenReturn(new Directory("src"));
+    when(directoryContext.getChildren()).thenReturn(Arrays.asList(fileContext));
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+    when(context.getChildren()).thenReturn(Arrays.asList(directoryContext));
+
+    decorator.decorate(new Directory("src"), directoryContext);
+    verify(directoryContext, times(0)).getChildren();
+    decorator.decorate(project, context);
+
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 1.5);
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_RATIO, 75.0);
+  }
+
+  @Test
+  public void readsPrecomputedFilesOnlyForMissingInputs() {
+    File file = new File("src/Foo.cpp");
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getResources()).thenReturn(Arrays.<org.sonar.api.resources.Resource> asList(project, file));
+    when(index.getParent(file)).thenReturn(project);
+    when(index.getMeasure(file, CoreMetrics.COMPLEXITY)).thenReturn(new Measure(CoreMetrics.COMPLEXITY, 20.0));
+    when(index.getMeasure(file, DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH)).thenReturn(
+        new Measure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, 4.0));
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.PARALLEL, true);
+    decorator = newDecorator(settings, project, index);
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getProject()).thenReturn(project);
+    when(context.getResource()).thenReturn(file);
+    when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(new Measure(CoreMetrics.COVERAGE, 50.0));
+    when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(new Measure(CoreMetrics.COMPLEXITY, 20.0));
+
+    decorator.decorate(file, context);
+
+    // Complexity is precomputed, only its missing distribution is checked
+    verify(context, times(0)).getMeasure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH);
+    verify(context, times(1)).getMeasure(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION);
+    // Coverage is saved by a decorator, it is never precomputed
+    verify(context, times(1)).getMeasure(CoreMetrics.COVERAGE);
+  }
+
+  @Test
+  public void savesHotspotsInSummary() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.HOTSPOTS, 5);
+    decorator = newDecorator(settings, project, mock(SonarIndex.class));
+    File file = new File("src/Foo.cpp");
+    DecoratorContext fileContext = mock(DecoratorContext.class);
+    when(fileContext.getResource()).thenReturn(file);
+    when(fileContext.getMeasure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH)).thenReturn(
+        new Measure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH, 8.0));
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(project);
+
+    decorator.decorate(file, fileContext);
+    decorator.decorate(project, context);
+
+    ArgumentCaptor<Measure> measures = ArgumentCaptor.forClass(Measure.class);
+    verify(context, atLeastOnce()).saveMeasure(measures.capture());
+    String summary = null;
+    for (Measure measure : measures.getAllValues()) {
+      if (TechnicalDebtMetrics.TECHNICAL_DEBT_SUMMARY.equals(measure.getMetric())) {
+        summary = measure.getData();
+      }
+    }
+    String[] parts = summary.split("\\|", 3);
+    assertThat(parts.length, is(3));
+    assertThat(parts[2], is("Complexity\t" + 8.0 * TechnicalDebtPlugin.COST_METHOD_COMPLEXITY_DEFVAL / 8.0 + "\t"
+        + file.getKey() + "\n"));
+  }
+
+  @Test
+  public void reevaluatesAxesThatAreNotCacheable() {
+    Settings settings = new Settings(new PropertyDefinitions(TechnicalDebtPlugin.class));
+    settings.setProperty(TechnicalDebtPlugin.CACHE, true);
+    File file = new File("src/Foo.cpp");
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getResource()).thenReturn(file);
+    when(context.getMeasure(CoreMetrics.LINES)).thenReturn(new Measure(CoreMetrics.LINES, 10.0));
+    DecoratorContext projectContext = mock(DecoratorContext.class);
+    when(projectContext.getResource()).thenReturn(project);
+
+    analyse(settings, file, context, projectContext, 1.0, 2.0);
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 3.0);
+
+    // Same measures, but the sources read by the second axis have changed
+    analyse(settings, file, context, projectContext, 10.0, 20.0);
+    verify(context, times(1)).saveMeasure(TechnicalDebtMetrics.TECHNICAL_DEBT_DAYS, 21.0);
+  }
+
+  @Test
+  public void scopesSharedFilesByModule() {
+    Project root = new Project("group:root");
+    Project module = new Project("group:module").setParent(root);
+
+    assertThat(TechnicalDebtDecorator.moduleFile("cache/debt.bin", project).getName(), is("debt.bin"));
+    assertThat(TechnicalDebtDecorator.moduleFile("cache/debt.bin", root).getName(), is("debt-group_root.bin"));
+    assertThat(TechnicalDebtDecorator.moduleFile("cache/debt.bin", module).getPath(),
+        is(new java.io.File("cache", "debt-group_module.bin").getPath()));
+    assertThat(TechnicalDebtDecorator.moduleFile("debt", module).getName(), is("debt-group_module"));
+  }
+
+  private void analyse(Settings settings, File file, DecoratorContext context, DecoratorContext projectContext,
+      double measureDebt, double sourceDebt) {
+    CostModel costModel = new CostModel(settings);
+    AxisRegistry registry = new AxisRegistry(settings, new AxisDebtCalculator[] {
+      new FixedAxis(settings, "Measures", measureDebt, true),
+      new FixedAxis(settings, "Sources", sourceDebt, false)});
+    decorator = new TechnicalDebtDecorator(settings, project, mock(SonarIndex.class), registry, costModel);
+    decorator.decorate(file, context);
+    decorator.decorate(project, projectContext);
+  }
+
+  private static final class FixedAxis extends AxisDebtCalculator {
+    private final String name;
+    private final double debt;
+    private final boolean cacheable;
+
+    FixedAxis(Settings settings, String name, double debt, boolean cacheable) {
+      super(settings);
+      this.name = name;
+      this.debt = debt;
+      this.cacheable = cacheable;
+    }
+
+    public double calculateActualDebt(DecoratorContext context) {
+      return debt;
+    }
+
+    public double calculatePossibleDebt(DecoratorContext context) {
+      return 100.0;
+    }
+
+    public List<Metric> dependsOn() {
+      return Arrays.<Metric> asList(CoreMetrics.LINES);
+    }
+
+    public boolean isCacheable() {
+      return cacheable;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private static Project module(String language, boolean sources) {
+    ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+    List<java.io.File> sourceDirs = Lists.newArrayList();
+    if (sources) {
+      sourceDirs.add(new java.io.File("src"));
+    }
+    when(fileSystem.getSourceDirs()).thenReturn(sourceDirs);
+    return new Project(language + "-module").setLanguageKey(language).setFileSystem(fileSystem);
+  }
+
+  private static TechnicalDebtDecorator newDecorator(Settings settings, Project project, SonarIndex index) {
+    CostModel costModel = new CostModel(settings);
+    AxisRegistry registry = new AxisRegistry(settings, new AxisDebtCalculator[] {
+      new ComplexityDebtCalculator(settings, costModel),
+      new CoverageDebtCalculator(settings, costModel, new ComplexityToCoverFetcher()),
+      new DuplicationDebtCalculator(settings, costModel)});
+    return new TechnicalDebtDecorator(settings, project, index, registry, costModel);
   }
 }
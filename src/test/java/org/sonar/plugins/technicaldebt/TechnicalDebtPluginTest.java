@@ -37,7 +37,7 @@ public class TechnicalDebtPluginTest {
 
   @Test
   public void defineExtensions() {
-    assertThat(plugin.getExtensions().size(), is(3));
+    assertThat(plugin.getExtensions().size(), is(14));
   }
 
 }
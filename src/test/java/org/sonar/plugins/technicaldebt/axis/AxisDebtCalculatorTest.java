@@ -0,0 +1,70 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.Metric;
+
+public class AxisDebtCalculatorTest {
+
+	private final DecoratorContext context = mock(DecoratorContext.class);
+
+	@Test
+	public void testEvaluateLegacyAxisThrowingNoCalculation() {
+		AxisDebt debt = new LegacyAxis().evaluate(context);
+
+		assertThat(debt.isApplicable(), is(false));
+		assertEquals(3.0, debt.getActualDebt(), 0.0001);
+	}
+
+	private static class LegacyAxis extends AxisDebtCalculator {
+
+		LegacyAxis() {
+			super(new Settings());
+		}
+
+		public double calculateActualDebt(DecoratorContext context) {
+			return 3.0;
+		}
+
+		public double calculatePossibleDebt(DecoratorContext context)
+				throws NoCalculation {
+			throw new NoCalculation();
+		}
+
+		public List<Metric> dependsOn() {
+			return Collections.emptyList();
+		}
+
+		public String getName() {
+			return "Legacy";
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+public class AxisRegistryTest {
+
+	@Test
+	public void testAllAxesEnabledByDefault() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class));
+		AxisRegistry registry = new AxisRegistry(settings,
+				new AxisDebtCalculator[] {
+						new ComplexityDebtCalculator(settings),
+						new DuplicationDebtCalculator(settings) });
+
+		assertThat(registry.getAxes().size(), is(2));
+		assertEquals("Complexity", registry.getAxes().get(0).getName());
+	}
+
+	@Test
+	public void testDisabledAxis() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class));
+		settings.setProperty(TechnicalDebtPlugin.COMPLEXITY_AXIS_ENABLED,
+				false);
+		AxisRegistry registry = new AxisRegistry(settings,
+				new AxisDebtCalculator[] {
+						new ComplexityDebtCalculator(settings),
+						new DuplicationDebtCalculator(settings) });
+
+		assertThat(registry.getAxes().size(), is(1));
+		assertEquals("Duplication", registry.getAxes().get(0).getName());
+	}
+
+	@Test
+	public void testEnabledKey() {
+		assertEquals(TechnicalDebtPlugin.COVERAGE_AXIS_ENABLED,
+				AxisRegistry.enabledKey("Coverage"));
+	}
+
+	@Test
+	public void testNoAxis() {
+		assertThat(new AxisRegistry(new Settings()).getAxes().isEmpty(),
+				is(true));
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.resources.Resource;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+public class CommentsDebtCalculatorTest {
+
+	private static final double COST = TechnicalDebtPlugin.COST_UNCOMMENTED_LINE_DEFVAL
+			/ AxisDebtCalculator.HOURS_PER_DAY;
+
+	private java.io.File sourceDir;
+	private Project project;
+	private CommentsDebtCalculator calculator;
+
+	@Before
+	public void setUp() throws IOException {
+		sourceDir = java.io.File.createTempFile("technicaldebt", "");
+		sourceDir.delete();
+		new java.io.File(sourceDir, "src").mkdirs();
+		ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+		when(fileSystem.getSourceDirs()).thenReturn(Arrays.asList(sourceDir));
+		project = new Project("project").setFileSystem(fileSystem);
+		calculator = new CommentsDebtCalculator(new Settings(
+				new PropertyDefinitions(TechnicalDebtPlugin.class)));
+	}
+
+	@After
+	public void tearDown() {
+		for (java.io.File file : new java.io.File(sourceDir, "src").listFiles()) {
+			file.delete();
+		}
+		new java.io.File(sourceDir, "src").delete();
+		sourceDir.delete();
+	}
+
+	private void write(String path, String source) throws IOException {
+		FileOutputStream output = new FileOutputStream(new java.io.File(
+				sourceDir, path));
+		try {
+			output.write(source.getBytes("US-ASCII"));
+		} finally {
+			output.close();
+		}
+	}
+
+	private DecoratorContext context(Resource resource,
+			DecoratorContext... children) {
+		DecoratorContext context = mock(DecoratorContext.class);
+		when(context.getProject()).thenReturn(project);
+		when(context.getResource()).thenReturn(resource);
+		when(context.getChildren()).thenReturn(Arrays.asList(children));
+		return context;
+	}
+
+	@Test
+	public void testMeasuredComments() {
+		DecoratorContext context = context(new File("src/a.cc"));
+		when(context.getMeasure(CoreMetrics.NCLOC)).thenReturn(
+				new Measure(CoreMetrics.NCLOC, 300.0));
+		when(context.getMeasure(CoreMetrics.COMMENT_LINES)).thenReturn(
+				new Measure(CoreMetrics.COMMENT_LINES, 40.0));
+
+		AxisDebt debt = calculator.evaluate(context);
+		assertEquals(60 * COST, debt.getActualDebt(), 0.0001);
+		assertEquals(100 * COST, debt.getPossibleDebt(), 0.0001);
+	}
+
+	@Test
+	public void testWellCommented() {
+		DecoratorContext context = context(new File("src/a.cc"));
+		when(context.getMeasure(CoreMetrics.NCLOC)).thenReturn(
+				new Measure(CoreMetrics.NCLOC, 30.0));
+		when(context.getMeasure(CoreMetrics.COMMENT_LINES)).thenReturn(
+				new Measure(CoreMetrics.COMMENT_LINES, 40.0));
+
+		assertThat(calculator.evaluate(context).getActualDebt(), is(0.0));
+	}
+
+	@Test
+	public void testScannedComments() throws IOException {
+		write("src/a.cc", "// a\nint a;\nint b;\nint c;\n");
+		write("src/b.cc", "int d; // d\nint e;\n/* f */\n");
+		DecoratorContext a = context(new File("src/a.cc"));
+		DecoratorContext b = context(new File("src/b.cc"));
+
+		AxisDebt debt = calculator.evaluate(a);
+		assertEquals(0.0, debt.getActualDebt(), 0.0001);
+		assertEquals(COST, debt.getPossibleDebt(), 0.0001);
+
+		// 2 lines of code and 2 of comments
+		debt = calculator.evaluate(b);
+		assertEquals(2.0 / 3 * COST, debt.getPossibleDebt(), 0.0001);
+		assertEquals(0.0, debt.getActualDebt(), 0.0001);
+	}
+
+	@Test
+	public void testDirectoriesAreSummedByTheDecorator() throws IOException {
+		calculator = new CommentsDebtCalculator(new Settings(
+				new PropertyDefinitions(TechnicalDebtPlugin.class)).setProperty(
+				TechnicalDebtPlugin.ROLLUP, true));
+		write("src/a.cc", "int a;\n");
+		DecoratorContext directory = context(new Directory("src"),
+				context(new File("src/a.cc")));
+
+		assertThat(calculator.rollsUp(), is(true));
+		assertThat(calculator.evaluate(directory).isApplicable(), is(false));
+	}
+
+	@Test
+	public void testDirectoriesUseTheirMeasuresOutOfRollup() {
+		DecoratorContext directory = context(new Directory("src"));
+		when(directory.getMeasure(CoreMetrics.COMMENT_LINES)).thenReturn(
+				new Measure(CoreMetrics.COMMENT_LINES, 0.0));
+		when(directory.getMeasure(CoreMetrics.NCLOC)).thenReturn(
+				new Measure(CoreMetrics.NCLOC, 30.0));
+
+		assertThat(calculator.rollsUp(), is(false));
+		assertEquals(10 * COST, calculator.evaluate(directory)
+				.getActualDebt(), 0.0001);
+	}
+
+	@Test
+	public void testScansDecisionsForTheCoverageAxis() throws IOException {
+		write("src/a.cc", "if (a) {}\n");
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class)).setProperty(
+				TechnicalDebtPlugin.COVERAGE_LINES, true);
+		SourceScanner scanner = new SourceScanner();
+		calculator = new CommentsDebtCalculator(settings, new CostModel(
+				settings), scanner);
+
+		calculator.evaluate(context(new File("src/a.cc")));
+
+		// The coverage axis sharing the scanner reads the same pass
+		assertThat(scanner.getDecisions(1), is(1));
+	}
+
+	@Test
+	public void testMissingSource() {
+		DecoratorContext context = context(new File("src/missing.cc"));
+
+		assertThat(calculator.evaluate(context).isApplicable(), is(false));
+	}
+}
@@ -20,6 +20,7 @@
 package org.sonar.plugins.technicaldebt.axis;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -48,10 +49,11 @@ public class ComplexityDebtCalculatorTest {
 		context = mock(DecoratorContext.class);
 	}
 
-	@Test(expected = NoCalculation.class)
+	@Test
 	public void testTotalPossibleComplexityWhenNoComplexity() throws Exception {
 		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(null);
-		calculator.calculatePossibleDebt(context);
+		assertFalse(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)));
 	}
 
 	@Test
@@ -68,7 +70,7 @@ public class ComplexityDebtCalculatorTest {
 				calculator.calculatePossibleDebt(context), 0.0001);
 	}
 
-	@Test(expected = NoCalculation.class)
+	@Test
 	public void testPossibleComplexityNotPossible() throws Exception {
 		double complexityDelta = -1;
 		double complexity = CxxCppNcssSensor.DEFAULT_MAX_COMPLEXITY
@@ -76,7 +78,93 @@ public class ComplexityDebtCalculatorTest {
 		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(
 				new Measure(CoreMetrics.COMPLEXITY, complexity));
 
-		calculator.calculatePossibleDebt(context);
+		assertFalse(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)));
+	}
+
+	@Test
+	public void testPossibleComplexityFromDistribution() throws Exception {
+		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(
+				new Measure(CoreMetrics.COMPLEXITY, 1000.0));
+		when(context.getMeasure(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION))
+				.thenReturn(
+						new Measure(
+								CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION,
+								"1=10;10=2;12=1.0;30=1"));
+
+		// 10 and 11 overrun by 0.5, 12 to 29 by 10.5, the other functions add up
+		// to 91.5 so the last one is at 908.5
+		assertEquals((2 * 0.5 + 10.5 + 898.5)
+				* TechnicalDebtPlugin.COST_METHOD_COMPLEXITY_DEFVAL
+				/ DuplicationDebtCalculator.HOURS_PER_DAY,
+				calculator.calculatePossibleDebt(context), 0.0001);
+	}
+
+	@Test
+	public void testOverrun() throws Exception {
+		assertEquals(0.0, calculator.overrun("1=10;2=3;4=0;8=5", Double.NaN),
+				0.0);
+		assertEquals(0.0, calculator.overrun("", Double.NaN), 0.0);
+		// 20 to 44 overrun by 22 and 45 by 35
+		assertEquals(3 * 22 + 2 * 35,
+				calculator.overrun("20=3;45=2", Double.NaN), 0.0);
+	}
+
+	@Test
+	public void testOverrunOfTheLastRange() throws Exception {
+		// 20 to 44 add up to 3 * 32, the last two share the remaining 120
+		assertEquals(3 * 22 + 2 * 50, calculator.overrun("20=3;45=2", 216.0),
+				0.0);
+		// Never below the bottom limit of the range
+		assertEquals(3 * 22 + 2 * 35, calculator.overrun("20=3;45=2", 100.0),
+				0.0);
+	}
+
+	@Test
+	public void testOverrunOfOtherLimits() throws Exception {
+		// 5 to 14 overrun by 1, 15 to 99 by 47 and 100 by 90
+		assertEquals(4 * 1.0 + 47 + 90,
+				calculator.overrun("1=7;5=4;15=1;100=1", Double.NaN), 0.0);
+	}
+
+	@Test
+	public void testRangeOverrun() throws Exception {
+		assertEquals(0.0, ComplexityDebtCalculator.rangeOverrun(1, 2, 3), 0.0);
+		assertEquals(0.0, ComplexityDebtCalculator.rangeOverrun(2, 4, 3), 0.0);
+		assertEquals(1.5, ComplexityDebtCalculator.rangeOverrun(4, 6, 3), 0.0);
+		assertEquals(3.5, ComplexityDebtCalculator.rangeOverrun(6, 8, 3), 0.0);
+		assertEquals(27.0, ComplexityDebtCalculator.rangeOverrun(30, 30, 3),
+				0.0);
+	}
+
+	@Test
+	public void testPossibleComplexityNotPossibleFromDistribution()
+			throws Exception {
+		when(context.getMeasure(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION))
+				.thenReturn(
+						new Measure(
+								CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION,
+								"1=10;2=3;4=0;8=5"));
+
+		assertFalse(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)));
+	}
+
+	@Test
+	public void testActualNeverExceedsPossible() throws Exception {
+		when(context.getMeasure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH))
+				.thenReturn(
+						new Measure(DistanceMetrics.DISTANCE_COMPLEXITY_LENGTH,
+								30.0));
+		when(context.getMeasure(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION))
+				.thenReturn(
+						new Measure(
+								CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION,
+								"1=10;12=1"));
+
+		AxisDebt debt = calculator.evaluate(context);
+
+		assertEquals(debt.getActualDebt(), debt.getPossibleDebt(), 0.0);
 	}
 
 	@Test
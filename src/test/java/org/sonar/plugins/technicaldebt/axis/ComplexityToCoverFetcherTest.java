@@ -31,6 +31,7 @@ import org.sonar.api.measures.Measure;
 import org.sonar.plugins.cxx.coverage.NoCoverageMetrics;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ComplexityToCoverFetcherTest {
 
@@ -43,10 +44,10 @@ public class ComplexityToCoverFetcherTest {
 		context = mock(DecoratorContext.class);
 	}
 
-	@Test(expected = NoCalculation.class)
+	@Test
 	public void testNoComplexity() throws Exception {
 		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(null);
-		sut.getValue(context);
+		assertTrue(Double.isNaN(sut.getValue(context)));
 	}
 
 	public void testComplexityForCode() throws Exception {
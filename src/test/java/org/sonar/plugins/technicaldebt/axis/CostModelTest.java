@@ -0,0 +1,78 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+public class CostModelTest {
+
+	@Test
+	public void testDefaultCosts() {
+		CostModel costModel = new CostModel(new Settings(
+				new PropertyDefinitions(TechnicalDebtPlugin.class)));
+
+		assertEquals(TechnicalDebtPlugin.DAILY_RATE_DEFVAL,
+				costModel.getDailyRate(), 0.0001);
+		assertEquals(TechnicalDebtPlugin.COST_METHOD_COMPLEXITY_DEFVAL
+				/ AxisDebtCalculator.HOURS_PER_DAY,
+				costModel.getMethodComplexityCost(), 0.0001);
+		assertEquals(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS_DEFVAL
+				/ AxisDebtCalculator.HOURS_PER_DAY,
+				costModel.getDuplicatedBlockCost(), 0.0001);
+		assertEquals(TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL
+				/ AxisDebtCalculator.HOURS_PER_DAY,
+				costModel.getUncoveredComplexityCost(), 0.0001);
+	}
+
+	@Test
+	public void testCustomCosts() {
+		Settings settings = new Settings();
+		settings.setProperty(TechnicalDebtPlugin.DAILY_RATE, 700.0);
+		settings.setProperty(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS, 4.0);
+		CostModel costModel = new CostModel(settings);
+
+		assertEquals(700.0, costModel.getDailyRate(), 0.0001);
+		assertEquals(4.0 / AxisDebtCalculator.HOURS_PER_DAY,
+				costModel.getDuplicatedBlockCost(), 0.0001);
+		assertEquals(TechnicalDebtPlugin.COST_METHOD_COMPLEXITY_DEFVAL
+				/ AxisDebtCalculator.HOURS_PER_DAY,
+				costModel.getMethodComplexityCost(), 0.0001);
+	}
+
+	@Test
+	public void testScenarioCosts() {
+		Settings settings = new Settings();
+		settings.setProperty(TechnicalDebtPlugin.DAILY_RATE, 700.0);
+		settings.setProperty(TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS, 4.0);
+		settings.setProperty("technicaldebt.scenario.cheap.dupli.blocks", 1.0);
+		CostModel costModel = CostModel.scenario(settings, "cheap");
+
+		assertEquals(700.0, costModel.getDailyRate(), 0.0001);
+		assertEquals(1.0 / AxisDebtCalculator.HOURS_PER_DAY,
+				costModel.getDuplicatedBlockCost(), 0.0001);
+		assertEquals(4.0 / AxisDebtCalculator.HOURS_PER_DAY, new CostModel(
+				settings).getDuplicatedBlockCost(), 0.0001);
+	}
+}
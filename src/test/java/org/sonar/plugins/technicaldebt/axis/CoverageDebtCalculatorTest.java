@@ -19,6 +19,10 @@
  */
 package org.sonar.plugins.technicaldebt.axis;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.batch.DecoratorContext;
@@ -26,10 +30,19 @@ import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
 import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
 
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CoverageDebtCalculatorTest {
@@ -46,10 +59,22 @@ public class CoverageDebtCalculatorTest {
 		context = mock(DecoratorContext.class);
 	}
 
-	@Test(expected = NoCalculation.class)
+	@Test
 	public void testTotalCoverageWhenNoCoverageNeeded() throws Exception {
 		when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(null);
-		calculator.calculatePossibleDebt(context);
+		assertFalse(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)));
+	}
+
+	@Test
+	public void testTotalCoverageWhenNoComplexity() throws Exception {
+		when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(
+				new Measure(CoreMetrics.COVERAGE, 50.0));
+		when(valueFetcher.getValue(context)).thenReturn(ValueFetcher.NO_VALUE);
+
+		assertFalse(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)));
+		assertEquals(0.0d, calculator.calculateActualDebt(context), 0);
 	}
 
 	@Test
@@ -104,4 +129,166 @@ public class CoverageDebtCalculatorTest {
 				calculator.calculateActualDebt(context), 0.0001);
 	}
 
+	@Test
+	public void testEvaluateFetchesComplexityOnce() throws NoCalculation {
+		double complexity = 123;
+		double coverage = 100 * (CoverageDebtCalculator.COVERAGE_TARGET - 0.01);
+
+		when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(
+				new Measure(CoreMetrics.COVERAGE, coverage));
+
+		when(valueFetcher.getValue(context)).thenReturn(complexity);
+
+		AxisDebt debt = calculator.evaluate(context);
+
+		verify(context, times(1)).getMeasure(CoreMetrics.COVERAGE);
+		verify(valueFetcher, times(1)).getValue(context);
+		assertThat(debt.isApplicable(), is(true));
+		assertEquals(calculator.calculateActualDebt(context),
+				debt.getActualDebt(), 0.0001);
+		assertEquals(calculator.calculatePossibleDebt(context),
+				debt.getPossibleDebt(), 0.0001);
+	}
+
+	@Test
+	public void testBothDebtsByLineEvaluateTheFileOnce() throws NoCalculation {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class)).setProperty(
+				TechnicalDebtPlugin.COVERAGE_LINES, true);
+		calculator = new CoverageDebtCalculator(settings, valueFetcher);
+		when(context.getResource()).thenReturn(new File("src/a.cc"));
+		when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(
+				new Measure(CoreMetrics.COVERAGE, 50.0));
+		when(valueFetcher.getValue(context)).thenReturn(10.0);
+
+		double cost = TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL
+				/ AxisDebtCalculator.HOURS_PER_DAY;
+		assertEquals(3 * cost, calculator.calculateActualDebt(context), 0.0001);
+		assertEquals(8 * cost, calculator.calculatePossibleDebt(context),
+				0.0001);
+		verify(valueFetcher, times(1)).getValue(context);
+	}
+
+	@Test
+	public void testEvaluateWhenNoCoverage() {
+		when(context.getMeasure(CoreMetrics.COVERAGE)).thenReturn(null);
+
+		AxisDebt debt = calculator.evaluate(context);
+
+		assertThat(debt.isApplicable(), is(false));
+		assertEquals(0.0d, debt.getActualDebt(), 0);
+	}
+
+	@Test
+	public void testUncoveredComplexityByLine() throws IOException,
+			NoCalculation {
+		java.io.File source = java.io.File.createTempFile("technicaldebt",
+				".cc");
+		try {
+			writeSource(source);
+			ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+			when(fileSystem.getSourceDirs()).thenReturn(
+					Arrays.asList(source.getParentFile()));
+			Project project = new Project("project").setFileSystem(fileSystem);
+
+			Settings settings = new Settings(new PropertyDefinitions(
+					TechnicalDebtPlugin.class)).setProperty(
+					TechnicalDebtPlugin.COVERAGE_LINES, true);
+			calculator = new CoverageDebtCalculator(settings, valueFetcher);
+			assertThat(calculator.supportsSnapshot(), is(false));
+
+			DecoratorContext file = mock(DecoratorContext.class);
+			when(file.getProject()).thenReturn(project);
+			when(file.getResource()).thenReturn(new File(source.getName()));
+			when(file.getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA))
+					.thenReturn(
+							new Measure(CoreMetrics.COVERAGE_LINE_HITS_DATA,
+									"1=1;2=1;3=0;5=0;6=1"));
+			when(valueFetcher.getValue(file)).thenReturn(5.0);
+			DecoratorContext other = mock(DecoratorContext.class);
+			when(other.getProject()).thenReturn(project);
+			when(other.getResource()).thenReturn(new File("other.cc"));
+			when(other.getMeasure(CoreMetrics.COVERAGE)).thenReturn(
+					new Measure(CoreMetrics.COVERAGE, 50.0));
+			when(valueFetcher.getValue(other)).thenReturn(10.0);
+			DecoratorContext directory = mock(DecoratorContext.class);
+			when(directory.getResource()).thenReturn(new Directory("src"));
+
+			double cost = TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL
+					/ AxisDebtCalculator.HOURS_PER_DAY;
+			// 1 uncovered decision, and 2 uncovered lines out of 5 for the
+			// remaining complexity of 2
+			AxisDebt debt = calculator.evaluate(file);
+			assertEquals((1 + 2 * 2.0 / 5 - 0.2 * 5) * cost,
+					debt.getActualDebt(), 0.0001);
+			assertEquals(0.8 * 5 * cost, debt.getPossibleDebt(), 0.0001);
+
+			debt = calculator.evaluate(other);
+			assertEquals((5 - 0.2 * 10) * cost, debt.getActualDebt(), 0.0001);
+
+			// The decorator sums the files instead
+			assertThat(calculator.rollsUp(), is(true));
+			assertFalse(calculator.evaluate(directory).isApplicable());
+		} finally {
+			source.delete();
+		}
+	}
+
+	@Test
+	public void testUncoveredComplexityByLineInModule() throws IOException,
+			NoCalculation {
+		java.io.File sourceDir = java.io.File.createTempFile("technicaldebt",
+				"");
+		sourceDir.delete();
+		java.io.File source = new java.io.File(sourceDir, "src/f.cc");
+		source.getParentFile().mkdirs();
+		try {
+			writeSource(source);
+			ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+			when(fileSystem.getSourceDirs()).thenReturn(
+					Arrays.asList(sourceDir));
+			Project module = new Project("group:module").setFileSystem(
+					fileSystem).setParent(new Project("group:parent"));
+
+			Settings settings = new Settings(new PropertyDefinitions(
+					TechnicalDebtPlugin.class)).setProperty(
+					TechnicalDebtPlugin.COVERAGE_LINES, true);
+			calculator = new CoverageDebtCalculator(settings, valueFetcher);
+
+			DecoratorContext file = mock(DecoratorContext.class);
+			when(file.getProject()).thenReturn(module);
+			when(file.getResource()).thenReturn(
+					new File("group:module:src/f.cc"));
+			when(file.getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA))
+					.thenReturn(
+							new Measure(CoreMetrics.COVERAGE_LINE_HITS_DATA,
+									"1=1;2=1;3=0;5=0;6=1"));
+			when(valueFetcher.getValue(file)).thenReturn(5.0);
+
+			double cost = TechnicalDebtPlugin.COST_UNCOVERED_COMPLEXITY_DEFVAL
+					/ AxisDebtCalculator.HOURS_PER_DAY;
+			// The decisions of the source are located as in the root module
+			assertEquals((1 + 2 * 2.0 / 5 - 0.2 * 5) * cost, calculator
+					.evaluate(file).getActualDebt(), 0.0001);
+		} finally {
+			source.delete();
+			source.getParentFile().delete();
+			sourceDir.delete();
+		}
+	}
+
+	private static void writeSource(java.io.File source) throws IOException {
+		FileOutputStream output = new FileOutputStream(source);
+		try {
+			output.write(("int f(int a) {\n"
+					+ "  if (a > 0 && a < 10) {\n"
+					+ "    return 1;\n"
+					+ "  }\n"
+					+ "  while (a) a--;\n"
+					+ "  return 0;\n"
+					+ "}\n").getBytes("US-ASCII"));
+		} finally {
+			output.close();
+		}
+	}
 }
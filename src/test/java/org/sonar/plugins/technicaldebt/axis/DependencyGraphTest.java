@@ -0,0 +1,89 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class DependencyGraphTest {
+
+	private static DependencyGraph graph(int nodes, int[][] edges) {
+		int[] from = new int[edges.length];
+		int[] to = new int[edges.length];
+		for (int e = 0; e < edges.length; e++) {
+			from[e] = edges[e][0];
+			to[e] = edges[e][1];
+		}
+		DependencyGraph graph = new DependencyGraph(nodes, from, to,
+				edges.length);
+		graph.analyze();
+		return graph;
+	}
+
+	@Test
+	public void testAcyclicGraph() {
+		DependencyGraph graph = graph(4, new int[][] { { 0, 1 }, { 1, 2 },
+				{ 0, 2 }, { 2, 3 } });
+
+		assertThat(graph.getComponentCount(), is(4));
+		assertThat(graph.getOutDegree(0), is(2));
+		for (int node = 0; node < 4; node++) {
+			assertThat(graph.isInCycle(node), is(false));
+			assertThat(graph.getEdgesToCut(node), is(0));
+		}
+	}
+
+	@Test
+	public void testCycles() {
+		// 0 -> 1 -> 2 -> 0 and 3 <-> 4, 2 -> 3 links both
+		DependencyGraph graph = graph(6, new int[][] { { 0, 1 }, { 1, 2 },
+				{ 2, 0 }, { 2, 3 }, { 3, 4 }, { 4, 3 }, { 5, 5 } });
+
+		assertThat(graph.getComponentCount(), is(3));
+		assertThat(graph.getComponent(0), is(graph.getComponent(2)));
+		assertThat(graph.getComponent(3), is(graph.getComponent(4)));
+		assertThat(graph.isInCycle(1), is(true));
+		assertThat(graph.isInCycle(4), is(true));
+		assertThat(graph.isInCycle(5), is(false));
+		int cuts = 0;
+		for (int node = 0; node < 6; node++) {
+			cuts += graph.getEdgesToCut(node);
+		}
+		assertThat(cuts, is(2));
+		assertThat(graph.getEdgesToCut(2), is(1));
+		assertThat(graph.getEdgesToCut(5), is(0));
+	}
+
+	@Test
+	public void testDeepChainDoesNotOverflow() {
+		int nodes = 1000000;
+		int[][] edges = new int[nodes][];
+		for (int n = 0; n < nodes; n++) {
+			edges[n] = new int[] { n, (n + 1) % nodes };
+		}
+		DependencyGraph graph = graph(nodes, edges);
+
+		assertThat(graph.getComponentCount(), is(1));
+		assertThat(graph.getEdgesToCut(nodes - 1), is(1));
+	}
+}
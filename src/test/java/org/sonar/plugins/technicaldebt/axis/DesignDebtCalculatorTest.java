@@ -0,0 +1,157 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.design.Dependency;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+import com.google.common.collect.Sets;
+
+public class DesignDebtCalculatorTest {
+
+	private static final double CUT = TechnicalDebtPlugin.COST_CUT_EDGE_DEFVAL
+			/ AxisDebtCalculator.HOURS_PER_DAY;
+	private static final double SPLIT = TechnicalDebtPlugin.COST_SPLIT_COHESION_DEFVAL
+			/ AxisDebtCalculator.HOURS_PER_DAY;
+
+	private Project project;
+	private Directory directory;
+	private File a;
+	private File b;
+	private File c;
+	private DesignDebtCalculator calculator;
+
+	@Before
+	public void setUp() {
+		project = new Project("project");
+		directory = new Directory("src");
+		a = new File("src/a.cc");
+		b = new File("src/b.cc");
+		c = new File("src/c.cc");
+		SonarIndex index = mock(SonarIndex.class);
+		// a -> b -> a is a cycle, c only depends on a
+		when(index.getDependencies()).thenReturn(
+				Sets.newHashSet(new Dependency(a, b), new Dependency(b, a),
+						new Dependency(c, a)));
+		when(index.getParent(a)).thenReturn(directory);
+		when(index.getParent(b)).thenReturn(directory);
+		when(index.getParent(c)).thenReturn(directory);
+		when(index.getParent(directory)).thenReturn(project);
+		calculator = new DesignDebtCalculator(new Settings(
+				new PropertyDefinitions(TechnicalDebtPlugin.class)), index);
+	}
+
+	private DecoratorContext context(Resource resource) {
+		DecoratorContext context = mock(DecoratorContext.class);
+		when(context.getProject()).thenReturn(project);
+		when(context.getResource()).thenReturn(resource);
+		return context;
+	}
+
+	@Test
+	public void testFileInCycle() {
+		AxisDebt first = calculator.evaluate(context(a));
+		AxisDebt second = calculator.evaluate(context(b));
+
+		assertEquals(CUT, first.getActualDebt() + second.getActualDebt(),
+				0.0001);
+		assertEquals(CUT, first.getPossibleDebt(), 0.0001);
+		assertThat(calculator.evaluate(context(c)).getActualDebt(), is(0.0));
+	}
+
+	@Test
+	public void testDependenciesAreSummedIntoParents() {
+		AxisDebt debt = calculator.evaluate(context(project));
+
+		assertEquals(CUT, debt.getActualDebt(), 0.0001);
+		assertEquals(3 * CUT, debt.getPossibleDebt(), 0.0001);
+		assertEquals(CUT, calculator.evaluate(context(directory))
+				.getActualDebt(), 0.0001);
+	}
+
+	@Test
+	public void testLackOfCohesion() {
+		File d = new File("src/d.cc");
+		DecoratorContext context = context(d);
+		assertThat(calculator.evaluate(context).isApplicable(), is(false));
+
+		when(context.getMeasure(CoreMetrics.LCOM4)).thenReturn(
+				new Measure(CoreMetrics.LCOM4, 3.0));
+		AxisDebt debt = calculator.evaluate(context);
+		assertEquals(2 * SPLIT, debt.getActualDebt(), 0.0001);
+		assertEquals(2 * SPLIT, debt.getPossibleDebt(), 0.0001);
+	}
+
+	@Test
+	public void testPossibleDebtNotApplicable() {
+		DecoratorContext context = context(new File("src/d.cc"));
+		assertThat(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)), is(false));
+		assertEquals(CUT, calculator.calculatePossibleDebt(context(a)), 0.0001);
+	}
+
+	@Test
+	public void testManyFiles() {
+		// A single cycle through 3000 files of the project
+		Set<Dependency> dependencies = Sets.newHashSet();
+		File[] files = new File[3000];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new File("src/f" + i + ".cc");
+		}
+		for (int i = 0; i < files.length; i++) {
+			dependencies.add(new Dependency(files[i], files[(i + 1)
+					% files.length]));
+		}
+		SonarIndex index = mock(SonarIndex.class);
+		when(index.getDependencies()).thenReturn(dependencies);
+		calculator = new DesignDebtCalculator(new Settings(
+				new PropertyDefinitions(TechnicalDebtPlugin.class)), index);
+
+		double cuts = 0.0;
+		for (File file : files) {
+			AxisDebt debt = calculator.evaluate(context(new File(file
+					.getKey())));
+			assertEquals(CUT, debt.getPossibleDebt(), 0.0001);
+			cuts += debt.getActualDebt();
+		}
+		assertEquals(CUT, cuts, 0.0001);
+	}
+}
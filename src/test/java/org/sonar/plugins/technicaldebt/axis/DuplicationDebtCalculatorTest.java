@@ -27,10 +27,13 @@ import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
 import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -78,15 +81,15 @@ public class DuplicationDebtCalculatorTest {
 				calculator.calculatePossibleDebt(context), 0.0001);
 	}
 
-	@Test(expected = NoCalculation.class)
-	public void testTotalPossibleDebtWhenNoDuplicationWhenNoLines()
-			throws NoCalculation {
+	@Test
+	public void testTotalPossibleDebtWhenNoDuplicationWhenNoLines() {
 		when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS))
 				.thenReturn(null);
 
 		when(context.getMeasure(CoreMetrics.LINES)).thenReturn(null);
 
-		calculator.calculatePossibleDebt(context);
+		assertFalse(AxisDebtCalculator.isApplicable(calculator
+				.calculatePossibleDebt(context)));
 	}
 
 	@Test
@@ -135,8 +138,95 @@ public class DuplicationDebtCalculatorTest {
 
 	}
 	
+	@Test
+	public void testEvaluateWhenNoLines() {
+		double blocks = 4;
+		when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(
+				new Measure(CoreMetrics.DUPLICATED_BLOCKS, blocks));
+		when(context.getMeasure(CoreMetrics.LINES)).thenReturn(null);
+
+		AxisDebt debt = calculator.evaluate(context);
+
+		assertThat(debt.isApplicable(), is(false));
+		assertEquals(blocks * TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS_DEFVAL
+				/ DuplicationDebtCalculator.HOURS_PER_DAY,
+				debt.getActualDebt(), 0.0001);
+	}
+
 	@Test
 	public void testDependsOn() {
 		assertThat(calculator.dependsOn().size(), is(3));
 	}
+
+	@Test
+	public void testPreciseDebt() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class)).setProperty(
+				TechnicalDebtPlugin.DUPLICATION_PRECISE, true);
+		calculator = new DuplicationDebtCalculator(settings);
+		assertThat(calculator.supportsSnapshot(), is(false));
+
+		DecoratorContext a = file("p:a.cc", 100.0, DuplicationGroupsTest
+				.duplications(DuplicationGroupsTest.group("p:a.cc,1,25",
+						"p:b.cc,1,25")));
+		DecoratorContext b = file("p:b.cc", 50.0, DuplicationGroupsTest
+				.duplications(DuplicationGroupsTest.group("p:b.cc,1,25",
+						"p:a.cc,1,25")));
+		DecoratorContext directory = mock(DecoratorContext.class);
+		when(directory.getResource()).thenReturn(
+				new Directory("p:src"));
+		when(directory.getMeasure(CoreMetrics.LINES)).thenReturn(
+				new Measure(CoreMetrics.LINES, 150.0));
+
+		double cost = TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS_DEFVAL
+				/ DuplicationDebtCalculator.HOURS_PER_DAY;
+		AxisDebt debt = calculator.evaluate(a);
+		assertEquals(cost, debt.getActualDebt(), 0.0001);
+		// 100 lines hold 4 blocks of 25 lines
+		assertEquals(4 * cost, debt.getPossibleDebt(), 0.0001);
+		// Evaluating it again does not forget its charge
+		assertEquals(cost, calculator.calculateActualDebt(a), 0.0001);
+		assertEquals(0.0, calculator.calculateActualDebt(b), 0.0001);
+
+		// The decorator sums the files instead
+		assertThat(calculator.rollsUp(), is(true));
+		assertFalse(calculator.evaluate(directory).isApplicable());
+	}
+
+	@Test
+	public void testPreciseDebtAcrossModules() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class)).setProperty(
+				TechnicalDebtPlugin.DUPLICATION_PRECISE, true);
+		CostModel costModel = new CostModel(settings);
+		DuplicationGroups groups = new DuplicationGroups();
+		DuplicationDebtCalculator first = new DuplicationDebtCalculator(
+				settings, costModel, groups);
+		DuplicationDebtCalculator second = new DuplicationDebtCalculator(
+				settings, costModel, groups);
+
+		DecoratorContext a = file("p:m1:a.cc", 100.0, DuplicationGroupsTest
+				.duplications(DuplicationGroupsTest.group("p:m1:a.cc,1,25",
+						"p:m2:b.cc,1,25")));
+		DecoratorContext b = file("p:m2:b.cc", 50.0, DuplicationGroupsTest
+				.duplications(DuplicationGroupsTest.group("p:m2:b.cc,1,25",
+						"p:m1:a.cc,1,25")));
+
+		double cost = TechnicalDebtPlugin.COST_DUPLICATED_BLOCKS_DEFVAL
+				/ DuplicationDebtCalculator.HOURS_PER_DAY;
+		assertEquals(cost, first.calculateActualDebt(a), 0.0001);
+		// The group was charged by the axis of the other module
+		assertEquals(0.0, second.calculateActualDebt(b), 0.0001);
+	}
+
+	private DecoratorContext file(String key, double lines, String data) {
+		DecoratorContext file = mock(DecoratorContext.class);
+		when(file.getResource()).thenReturn(
+				new File(key));
+		when(file.getMeasure(CoreMetrics.LINES)).thenReturn(
+				new Measure(CoreMetrics.LINES, lines));
+		when(file.getMeasure(CoreMetrics.DUPLICATIONS_DATA)).thenReturn(
+				new Measure(CoreMetrics.DUPLICATIONS_DATA, data));
+		return file;
+	}
 }
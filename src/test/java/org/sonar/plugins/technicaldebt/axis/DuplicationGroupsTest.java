@@ -0,0 +1,94 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public class DuplicationGroupsTest {
+
+	static String group(String... blocks) {
+		StringBuilder group = new StringBuilder("<g>");
+		for (String block : blocks) {
+			String[] parts = block.split(",");
+			group.append("<b s=\"").append(parts[1]).append("\" l=\"")
+					.append(parts[2]).append("\" r=\"").append(parts[0])
+					.append("\"/>");
+		}
+		return group.append("</g>").toString();
+	}
+
+	static String duplications(String... groups) {
+		StringBuilder duplications = new StringBuilder("<duplications>");
+		for (String group : groups) {
+			duplications.append(group);
+		}
+		return duplications.append("</duplications>").toString();
+	}
+
+	@Test
+	public void testGroupsAreChargedOnce() throws XMLStreamException {
+		DuplicationGroups groups = new DuplicationGroups();
+
+		groups.read(duplications(group("p:a.cc,10,20", "p:b.cc,5,20"),
+				group("p:a.cc,50,10", "p:a.cc,80,10", "p:c.cc,1,10")));
+		assertThat(groups.getChargedBlocks(), is(3));
+		assertThat(groups.getOwnBlocks(), is(3));
+		assertThat(groups.getOwnLines(), is(40L));
+
+		// Same groups listed by b and c, in another order
+		groups.read(duplications(group("p:b.cc,5,20", "p:a.cc,10,20")));
+		assertThat(groups.getChargedBlocks(), is(0));
+		assertThat(groups.getOwnBlocks(), is(1));
+		groups.read(duplications(group("p:c.cc,1,10", "p:a.cc,80,10",
+				"p:a.cc,50,10")));
+		assertThat(groups.getChargedBlocks(), is(0));
+
+		// Another group of b
+		groups.read(duplications(group("p:b.cc,5,20", "p:d.cc,5,20")));
+		assertThat(groups.getChargedBlocks(), is(1));
+		assertThat(groups.size(), is(3));
+	}
+
+	@Test
+	public void testManyGroups() throws XMLStreamException {
+		DuplicationGroups groups = new DuplicationGroups();
+		for (int i = 0; i < 5000; i++) {
+			groups.read(duplications(group("p:a.cc," + i + ",10", "p:b.cc,"
+					+ i + ",10")));
+		}
+		for (int i = 0; i < 5000; i++) {
+			groups.read(duplications(group("p:b.cc," + i + ",10", "p:a.cc,"
+					+ i + ",10")));
+			assertThat(groups.getChargedBlocks(), is(0));
+		}
+		assertThat(groups.size(), is(5000));
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void testMalformedData() throws XMLStreamException {
+		new DuplicationGroups().read("<duplications><g>");
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MetricFinder;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+public class FormulaDebtCalculatorTest {
+
+	private Settings settings;
+	private MetricFinder metricFinder;
+
+	@Before
+	public void setUp() {
+		settings = new Settings();
+		settings.setProperty(TechnicalDebtPlugin.FORMULAS, "Size");
+		settings.setProperty(FormulaDebtCalculator.actualKey("Size"),
+				"over(lines, 100) * 0.5");
+		settings.setProperty(FormulaDebtCalculator.possibleKey("Size"),
+				"lines * 0.5");
+		metricFinder = mock(MetricFinder.class);
+		when(metricFinder.findByKey("lines")).thenReturn(CoreMetrics.LINES);
+	}
+
+	@Test
+	public void testDebtInDays() {
+		AxisDebtCalculator axis = FormulaDebtCalculator.fromSettings(settings,
+				new CostModel(settings), metricFinder).get(0);
+		DecoratorContext context = mock(DecoratorContext.class);
+		when(context.getMeasure(CoreMetrics.LINES)).thenReturn(
+				new Measure(CoreMetrics.LINES, 180.0));
+
+		AxisDebt debt = axis.evaluate(context);
+		assertThat(axis.getName(), is("Size"));
+		assertThat(axis.dependsOn().size(), is(1));
+		assertEquals(40.0 / AxisDebtCalculator.HOURS_PER_DAY,
+				debt.getActualDebt(), 0.0001);
+		assertEquals(90.0 / AxisDebtCalculator.HOURS_PER_DAY,
+				debt.getPossibleDebt(), 0.0001);
+	}
+
+	@Test
+	public void testNotApplicableWithoutMeasures() {
+		AxisDebtCalculator axis = FormulaDebtCalculator.fromSettings(settings,
+				new CostModel(settings), metricFinder).get(0);
+
+		AxisDebt debt = axis.evaluate(mock(DecoratorContext.class));
+		assertThat(debt.isApplicable(), is(false));
+		assertEquals(0.0, debt.getActualDebt(), 0.0);
+	}
+
+	@Test
+	public void testRegisteredAfterOtherAxes() {
+		AxisRegistry registry = new AxisRegistry(settings, new CostModel(
+				settings), metricFinder,
+				new AxisDebtCalculator[] { new DuplicationDebtCalculator(
+						settings) });
+
+		assertThat(registry.getAxes().size(), is(2));
+		assertThat(registry.getAxes().get(1).getName(), is("Size"));
+	}
+
+	@Test
+	public void testNotApplicableOnInfiniteResult() {
+		// Overflows a double
+		settings.setProperty(FormulaDebtCalculator.actualKey("Size"),
+				"lines * " + new BigDecimal(Double.MAX_VALUE).toPlainString());
+		AxisDebtCalculator axis = FormulaDebtCalculator.fromSettings(settings,
+				new CostModel(settings), metricFinder).get(0);
+		DecoratorContext context = mock(DecoratorContext.class);
+		when(context.getMeasure(CoreMetrics.LINES)).thenReturn(
+				new Measure(CoreMetrics.LINES, 180.0));
+
+		AxisDebt debt = axis.evaluate(context);
+		assertThat(debt.isApplicable(), is(false));
+		assertEquals(0.0, debt.getActualDebt(), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNameWithSeparator() {
+		settings.setProperty(TechnicalDebtPlugin.FORMULAS, "Size=1");
+		FormulaDebtCalculator.fromSettings(settings, new CostModel(settings),
+				metricFinder);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNameOfHotspotsTotal() {
+		settings.setProperty(TechnicalDebtPlugin.FORMULAS, "Total");
+		settings.setProperty(FormulaDebtCalculator.actualKey("Total"), "lines");
+		settings.setProperty(FormulaDebtCalculator.possibleKey("Total"),
+				"lines");
+		FormulaDebtCalculator.fromSettings(settings, new CostModel(settings),
+				metricFinder);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingFormula() {
+		settings.setProperty(TechnicalDebtPlugin.FORMULAS, "Size,Other");
+		FormulaDebtCalculator.fromSettings(settings, new CostModel(settings),
+				metricFinder);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.MetricFinder;
+
+import com.google.common.collect.Sets;
+
+public class FormulaParserTest {
+
+	private MetricFinder metricFinder;
+	private DecoratorContext context;
+
+	@Before
+	public void setUp() {
+		metricFinder = mock(MetricFinder.class);
+		when(metricFinder.findByKey("complexity")).thenReturn(
+				CoreMetrics.COMPLEXITY);
+		when(metricFinder.findByKey("lines")).thenReturn(CoreMetrics.LINES);
+		when(metricFinder.findByKey("coverage")).thenReturn(
+				CoreMetrics.COVERAGE);
+		context = mock(DecoratorContext.class);
+		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(
+				new Measure(CoreMetrics.COMPLEXITY, 12.0));
+		when(context.getMeasure(CoreMetrics.LINES)).thenReturn(
+				new Measure(CoreMetrics.LINES, 200.0));
+	}
+
+	private double evaluate(String formula) throws NoCalculation {
+		return new FormulaParser(formula, metricFinder, Sets
+				.<Metric> newHashSet()).parse().getValue(context);
+	}
+
+	@Test
+	public void testPrecedence() throws Exception {
+		assertEquals(14.0, evaluate("2 + 3 * 4"), 0.0);
+		assertEquals(20.0, evaluate("(2 + 3) * 4"), 0.0);
+		assertEquals(-1.0, evaluate("1 - 4 / 2"), 0.0);
+		assertEquals(-6.0, evaluate("-2*3"), 0.0);
+		assertEquals(1.5, evaluate("7 - 5 - 0.5"), 0.0);
+	}
+
+	@Test
+	public void testMetricsAndFunctions() throws Exception {
+		assertEquals(0.06, evaluate("complexity / lines"), 0.0001);
+		assertEquals(2.0, evaluate("over(complexity, 10)"), 0.0);
+		assertEquals(0.0, evaluate("over(complexity, 20)"), 0.0);
+		assertEquals(8.0, evaluate("under(complexity, 20)"), 0.0);
+		assertEquals(12.0, evaluate("min(complexity, lines)"), 0.0);
+		assertEquals(200.0, evaluate("max(complexity, lines)"), 0.0);
+	}
+
+	@Test
+	public void testMissingMeasures() throws Exception {
+		assertTrue(Double.isNaN(evaluate("coverage * complexity")));
+		assertEquals(80.0, evaluate("default(coverage, 80)"), 0.0);
+	}
+
+	@Test
+	public void testCollectsMetrics() {
+		Set<Metric> metrics = Sets.newLinkedHashSet();
+		new FormulaParser("complexity + lines * complexity", metricFinder,
+				metrics).parse();
+		assertThat(metrics.size(), is(2));
+		assertThat(metrics.contains(CoreMetrics.LINES), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownMetric() {
+		new FormulaParser("complexity + unknown", metricFinder, Sets
+				.<Metric> newHashSet()).parse();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownFunction() {
+		new FormulaParser("avg(complexity, lines)", metricFinder, Sets
+				.<Metric> newHashSet()).parse();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTrailingInput() {
+		new FormulaParser("complexity lines", metricFinder, Sets
+				.<Metric> newHashSet()).parse();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LineHitsTest {
+
+	@Test
+	public void testParse() {
+		LineHits hits = new LineHits();
+		hits.parse("1=3;2=0;15=12");
+
+		assertThat(hits.size(), is(3));
+		assertThat(hits.getLine(1), is(2));
+		assertThat(hits.getHits(1), is(0));
+		assertThat(hits.getLine(2), is(15));
+		assertThat(hits.getHits(2), is(12));
+	}
+
+	@Test
+	public void testMalformedPairsAreSkipped() {
+		LineHits hits = new LineHits();
+		hits.parse("1=3;2;=4;5=;7=99999999999;");
+
+		assertThat(hits.size(), is(2));
+		assertThat(hits.getLine(1), is(7));
+		assertThat(hits.getHits(1), is(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testReuse() {
+		LineHits hits = new LineHits();
+		StringBuilder data = new StringBuilder();
+		for (int line = 1; line <= 1000; line++) {
+			data.append(line).append('=').append(line % 2).append(';');
+		}
+		hits.parse(data.toString());
+		assertThat(hits.size(), is(1000));
+		assertThat(hits.getHits(999), is(0));
+
+		hits.parse("4=1");
+		assertThat(hits.size(), is(1));
+		assertThat(hits.getLine(0), is(4));
+	}
+}
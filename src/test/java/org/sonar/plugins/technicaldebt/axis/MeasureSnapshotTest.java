@@ -0,0 +1,138 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+
+public class MeasureSnapshotTest {
+
+	private static final Metric[] METRICS = { CoreMetrics.COMPLEXITY,
+			CoreMetrics.COVERAGE, CoreMetrics.LINES };
+
+	@Test
+	public void testHeapSnapshot() {
+		assertSnapshot(new MeasureSnapshot(METRICS, 100, 2000, false));
+	}
+
+	@Test
+	public void testOffHeapSnapshot() {
+		assertSnapshot(new MeasureSnapshot(METRICS, 100, 2000, true));
+	}
+
+	private void assertSnapshot(MeasureSnapshot snapshot) {
+		for (int i = 0; i < 100; i++) {
+			int row = snapshot.add("src/File" + i + ".cc");
+			snapshot.set(row, 0, new Measure(CoreMetrics.COMPLEXITY, 1.0 * i));
+			if (i % 2 == 0) {
+				snapshot.set(row, 2, new Measure(CoreMetrics.LINES, 10.0 * i));
+			}
+		}
+
+		assertThat(snapshot.size(), is(100));
+		int row = snapshot.rowOf("src/File42.cc");
+		assertThat(row, is(42));
+		assertThat(snapshot.getKey(row), is("src/File42.cc"));
+		assertEquals(42.0, snapshot.getValue(row, 0), 0.0);
+		assertEquals(420.0, snapshot.getValue(row, 2), 0.0);
+		assertThat(Double.isNaN(snapshot.getValue(row, 1)), is(true));
+		assertThat(snapshot.getMissing(row), is(1L << 1));
+		assertThat(snapshot.getMissing(43), is(1L << 1 | 1L << 2));
+
+		assertThat(snapshot.rowOf("src/File100.cc"), is(-1));
+		assertThat(snapshot.rowOf("src/File4.c"), is(-1));
+		assertThat(snapshot.columnOf(CoreMetrics.LINES), is(2));
+		assertThat(snapshot.columnOf(CoreMetrics.DUPLICATED_BLOCKS), is(-1));
+	}
+
+	@Test
+	public void testDistribution() {
+		MeasureSnapshot snapshot = new MeasureSnapshot(new Metric[] {
+				CoreMetrics.COMPLEXITY,
+				CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION }, 2, 20, true);
+		int row = snapshot.add("src/a.cc");
+		snapshot.set(row, 1, new Measure(
+				CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, "1=2;12=1"));
+		snapshot.add("src/b.cc");
+
+		assertThat(snapshot.getData(row, 1), is("1=2;12=1"));
+		assertThat(Double.isNaN(snapshot.getValue(row, 1)), is(true));
+		assertThat(snapshot.getData(1, 1), nullValue());
+		assertThat(snapshot.getData(row, 0), nullValue());
+	}
+
+	@Test
+	public void testTextGrowsOnHeap() {
+		assertTextGrows(false);
+	}
+
+	@Test
+	public void testTextGrowsOffHeap() {
+		assertTextGrows(true);
+	}
+
+	private void assertTextGrows(boolean offHeap) {
+		MeasureSnapshot snapshot = new MeasureSnapshot(new Metric[] {
+				CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION,
+				CoreMetrics.COMPLEXITY,
+				CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION }, 40, 400, offHeap);
+		StringBuilder distribution = new StringBuilder();
+		// Far more text than the initial 16 characters per cell
+		for (int i = 0; i < 40; i++) {
+			int row = snapshot.add("src/" + i + ".cc");
+			distribution.append(i + 1).append("=").append(i).append(';');
+			snapshot.set(row, 0, new Measure(
+					CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, distribution
+							.toString()));
+			snapshot.set(row, 2, new Measure(
+					CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION, "0=" + i));
+		}
+
+		assertThat(snapshot.getData(0, 0), is("1=0;"));
+		assertThat(snapshot.getData(39, 0), is(distribution.toString()));
+		assertThat(snapshot.getData(4, 2), is("0=4"));
+		assertThat(snapshot.getData(4, 1), nullValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBufferOverflow() {
+		// 2^28 rows of 64 metrics do not fit in an int
+		Metric[] metrics = new Metric[MeasureSnapshot.MAX_METRICS];
+		for (int i = 0; i < metrics.length; i++) {
+			metrics[i] = CoreMetrics.LINES;
+		}
+		new MeasureSnapshot(metrics, 1 << 28, 0, true);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCapacity() {
+		MeasureSnapshot snapshot = new MeasureSnapshot(METRICS, 1, 10, false);
+		snapshot.add("a");
+		snapshot.add("b");
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.File;
+
+public class MemoizingValueFetcherTest {
+
+	private final ValueFetcher fetcher = ValueFetchers.memoize(ValueFetchers
+			.measure(CoreMetrics.COMPLEXITY));
+
+	@Test
+	public void testFetchesOncePerResource() throws Exception {
+		DecoratorContext context = context(new File("src/a.cc"), 12.0);
+
+		assertEquals(12.0, fetcher.getValue(context), 0.0);
+		assertEquals(12.0, fetcher.getValue(context), 0.0);
+		verify(context, times(1)).getMeasure(CoreMetrics.COMPLEXITY);
+	}
+
+	@Test
+	public void testFetchesAgainForAnotherResource() throws Exception {
+		DecoratorContext first = context(new File("src/a.cc"), 12.0);
+		DecoratorContext second = context(new File("src/b.cc"), 3.0);
+
+		assertEquals(12.0, fetcher.getValue(first), 0.0);
+		assertEquals(3.0, fetcher.getValue(second), 0.0);
+		assertEquals(12.0, fetcher.getValue(first), 0.0);
+		verify(first, times(2)).getMeasure(CoreMetrics.COMPLEXITY);
+	}
+
+	@Test
+	public void testFetchesAgainOnceCleared() throws Exception {
+		DecoratorContext context = context(new File("src/a.cc"), 12.0);
+
+		assertEquals(12.0, fetcher.getValue(context), 0.0);
+		((MemoizingValueFetcher) fetcher).clear();
+		assertEquals(12.0, fetcher.getValue(context), 0.0);
+		verify(context, times(2)).getMeasure(CoreMetrics.COMPLEXITY);
+	}
+
+	private static DecoratorContext context(File file, double complexity) {
+		DecoratorContext context = mock(DecoratorContext.class);
+		when(context.getResource()).thenReturn(file);
+		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(
+				new Measure(CoreMetrics.COMPLEXITY, complexity));
+		return context;
+	}
+}
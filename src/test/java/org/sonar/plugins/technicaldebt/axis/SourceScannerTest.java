@@ -0,0 +1,200 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.resources.Project;
+
+public class SourceScannerTest {
+
+	private static final String SOURCE = "/*\n"
+			+ " * License\n"
+			+ " */\n"
+			+ "\n"
+			+ "#include \"a.h\" // comment\n"
+			+ "int a = 4 / 2; /* block */ int b;\n"
+			+ "const char* s = \"/* not a comment */\";\n"
+			+ "char c = '\"'; // quote \\\n"
+			+ "   continued\n"
+			+ "  /* multi\n"
+			+ "\n"
+			+ "     line **/\n"
+			+ "}";
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("technicaldebt-source", ".cc");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private void write(String source) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(source.getBytes("US-ASCII"));
+		} finally {
+			output.close();
+		}
+	}
+
+	@Test
+	public void testCountLines() throws IOException {
+		write(SOURCE);
+		SourceScanner scanner = new SourceScanner();
+
+		assertThat(scanner.scan(file), is(true));
+		assertThat(scanner.getCodeLines(), is(5));
+		assertThat(scanner.getCommentLines(), is(7));
+	}
+
+	@Test
+	public void testSmallWindowsAndCarriageReturns() throws IOException {
+		write(SOURCE.replace("\n", "\r\n"));
+		SourceScanner scanner = new SourceScanner(7);
+
+		assertThat(scanner.scan(file), is(true));
+		assertThat(scanner.getCodeLines(), is(5));
+		assertThat(scanner.getCommentLines(), is(7));
+	}
+
+	@Test
+	public void testDecisions() throws IOException {
+		write("int f(int a) {\n"
+				+ "  if (a > 0 && a < 10 || a == 20) {\n"
+				+ "    return a ? 1 : 2; // if not counted\n"
+				+ "  }\n"
+				+ "  for (;;) { while (x) {} }\n"
+				+ "  switch (a) { case 1: break; }\n"
+				+ "  const char* s = \"if\"; int iffy, elif, a & b;\n"
+				+ "  try {} catch (...) {}");
+		SourceScanner scanner = new SourceScanner(5);
+
+		assertThat(scanner.scan(file, true), is(true));
+		assertThat(scanner.getDecisions(1), is(0));
+		assertThat(scanner.getDecisions(2), is(3));
+		assertThat(scanner.getDecisions(3), is(1));
+		assertThat(scanner.getDecisions(5), is(2));
+		assertThat(scanner.getDecisions(6), is(1));
+		assertThat(scanner.getDecisions(7), is(0));
+		assertThat(scanner.getDecisions(8), is(1));
+		assertThat(scanner.getDecisions(9), is(0));
+
+		// The same file is not scanned again
+		assertThat(scanner.scan(file), is(true));
+		assertThat(scanner.getDecisions(2), is(3));
+	}
+
+	@Test
+	public void testCountsDecisionsOfFileScannedWithout() throws IOException {
+		write("if (a) {}\n");
+		SourceScanner scanner = new SourceScanner();
+
+		assertThat(scanner.scan(file), is(true));
+		assertThat(scanner.getDecisions(1), is(0));
+		assertThat(scanner.scan(file, true), is(true));
+		assertThat(scanner.getDecisions(1), is(1));
+	}
+
+	@Test
+	public void testPreprocessorLinesAreNoDecisions() throws IOException {
+		write("#if defined(A) && B\n"
+				+ "#elif C || D \\\n"
+				+ "  && E ? 1 : 0\n"
+				+ "#endif\n"
+				+ "  if (a && b) {}\n"
+				+ "  #  if X\n");
+		SourceScanner scanner = new SourceScanner();
+
+		assertThat(scanner.scan(file, true), is(true));
+		assertThat(scanner.getDecisions(1), is(0));
+		assertThat(scanner.getDecisions(2), is(0));
+		assertThat(scanner.getDecisions(3), is(0));
+		assertThat(scanner.getDecisions(5), is(2));
+		assertThat(scanner.getDecisions(6), is(0));
+		assertThat(scanner.getCodeLines(), is(6));
+	}
+
+	@Test
+	public void testRvalueReferencesAreNoDecisions() throws IOException {
+		write("void f(T&& x, auto&& y);\n"
+				+ "template <class... A> void g(A&&... a);\n"
+				+ "std::vector<int>&& v = h(std::move(w));\n"
+				+ "void k(int&&);\n"
+				+ "bool b = x && y, c = x&&y;\n"
+				+ "if (p &&\n"
+				+ "    q) {}");
+		SourceScanner scanner = new SourceScanner(3);
+
+		assertThat(scanner.scan(file, true), is(true));
+		assertThat(scanner.getDecisions(1), is(0));
+		assertThat(scanner.getDecisions(2), is(0));
+		assertThat(scanner.getDecisions(3), is(0));
+		assertThat(scanner.getDecisions(4), is(0));
+		assertThat(scanner.getDecisions(5), is(2));
+		assertThat(scanner.getDecisions(6), is(2));
+		assertThat(scanner.getDecisions(7), is(0));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		SourceScanner scanner = new SourceScanner();
+
+		assertThat(scanner.scan(file), is(true));
+		assertThat(scanner.getCodeLines(), is(0));
+		assertThat(scanner.getCommentLines(), is(0));
+	}
+
+	@Test
+	public void testMissingFile() {
+		file.delete();
+		SourceScanner scanner = new SourceScanner();
+
+		assertThat(scanner.scan(file), is(false));
+	}
+
+	@Test
+	public void testRelativePath() {
+		Project module = new Project("group:module");
+
+		assertThat(SourceScanner.relativePath("src/a.cc", module),
+				is("src/a.cc"));
+		assertThat(SourceScanner.relativePath("group:module:src/a.cc",
+				module), is("src/a.cc"));
+		assertThat(SourceScanner.relativePath("[root]/a.cc", module),
+				is("a.cc"));
+		assertThat(SourceScanner.relativePath("group:module:[root]/a.cc",
+				module), is("a.cc"));
+	}
+}
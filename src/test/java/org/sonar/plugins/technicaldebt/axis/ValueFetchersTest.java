@@ -0,0 +1,74 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+
+public class ValueFetchersTest {
+
+	private DecoratorContext context;
+
+	@Before
+	public void setUp() {
+		context = mock(DecoratorContext.class);
+		when(context.getMeasure(CoreMetrics.COMPLEXITY)).thenReturn(
+				new Measure(CoreMetrics.COMPLEXITY, 12.0));
+		when(context.getMeasure(CoreMetrics.LINES)).thenReturn(
+				new Measure(CoreMetrics.LINES, 4.0));
+	}
+
+	@Test
+	public void testArithmetic() throws Exception {
+		ValueFetcher complexity = ValueFetchers.measure(CoreMetrics.COMPLEXITY);
+		ValueFetcher lines = ValueFetchers.measure(CoreMetrics.LINES);
+
+		assertEquals(16.0, ValueFetchers.sum(complexity, lines).getValue(
+				context), 0.0);
+		assertEquals(8.0, ValueFetchers.difference(complexity, lines)
+				.getValue(context), 0.0);
+		assertEquals(3.0, ValueFetchers.ratio(complexity, lines).getValue(
+				context), 0.0);
+	}
+
+	@Test
+	public void testMissingValuesPropagate() throws Exception {
+		ValueFetcher complexity = ValueFetchers.measure(CoreMetrics.COMPLEXITY);
+		ValueFetcher coverage = ValueFetchers.measure(CoreMetrics.COVERAGE);
+
+		assertTrue(Double.isNaN(coverage.getValue(context)));
+		assertTrue(Double.isNaN(ValueFetchers.sum(complexity, coverage)
+				.getValue(context)));
+		assertTrue(Double.isNaN(ValueFetchers.ratio(complexity,
+				ValueFetchers.constant(0.0)).getValue(context)));
+		assertEquals(12.0, ValueFetchers.difference(complexity,
+				ValueFetchers.fallback(coverage, ValueFetchers.constant(0.0)))
+				.getValue(context), 0.0);
+	}
+}
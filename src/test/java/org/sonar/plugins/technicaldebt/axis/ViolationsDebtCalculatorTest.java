@@ -0,0 +1,114 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2009 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.plugins.technicaldebt.axis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.plugins.technicaldebt.TechnicalDebtPlugin;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ViolationsDebtCalculatorTest {
+	private DecoratorContext context;
+	private ViolationsDebtCalculator calculator;
+
+	@Before
+	public void setUp() throws Exception {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class));
+		calculator = new ViolationsDebtCalculator(settings);
+		context = mock(DecoratorContext.class);
+	}
+
+	@Test
+	public void testCalculateActualDebt() {
+		assertEquals(0d, calculator.calculateActualDebt(context), 0);
+
+		when(context.getMeasure(CoreMetrics.BLOCKER_VIOLATIONS)).thenReturn(
+				new Measure(CoreMetrics.BLOCKER_VIOLATIONS, 2.0));
+		when(context.getMeasure(CoreMetrics.MINOR_VIOLATIONS)).thenReturn(
+				new Measure(CoreMetrics.MINOR_VIOLATIONS, 10.0));
+		assertEquals((2 * TechnicalDebtPlugin.COST_BLOCKER_VIOLATION_DEFVAL + 10
+				* TechnicalDebtPlugin.COST_MINOR_VIOLATION_DEFVAL)
+				/ AxisDebtCalculator.HOURS_PER_DAY,
+				calculator.calculateActualDebt(context), 0.0001);
+	}
+
+	@Test
+	public void testCustomCostPerSeverity() {
+		Settings settings = new Settings();
+		settings.setProperty(TechnicalDebtPlugin.COST_CRITICAL_VIOLATION, 4.0);
+		calculator = new ViolationsDebtCalculator(settings);
+		when(context.getMeasure(CoreMetrics.CRITICAL_VIOLATIONS)).thenReturn(
+				new Measure(CoreMetrics.CRITICAL_VIOLATIONS, 3.0));
+
+		assertEquals(12.0 / AxisDebtCalculator.HOURS_PER_DAY,
+				calculator.calculateActualDebt(context), 0.0001);
+	}
+
+	@Test
+	public void testPossibleDebt() {
+		assertThat(calculator.evaluate(context).isApplicable(), is(false));
+
+		when(context.getMeasure(CoreMetrics.NCLOC)).thenReturn(
+				new Measure(CoreMetrics.NCLOC, 1000.0));
+		assertEquals(1000 * TechnicalDebtPlugin.COST_MAJOR_VIOLATION_DEFVAL
+				/ AxisDebtCalculator.HOURS_PER_DAY, calculator.evaluate(context)
+				.getPossibleDebt(), 0.0001);
+
+		when(context.getMeasure(CoreMetrics.BLOCKER_VIOLATIONS)).thenReturn(
+				new Measure(CoreMetrics.BLOCKER_VIOLATIONS, 500.0));
+		AxisDebt debt = calculator.evaluate(context);
+		assertEquals(debt.getActualDebt(), debt.getPossibleDebt(), 0.0);
+	}
+
+	@Test
+	public void testLinearCostWhileSeveritiesKeepTheirWeights() {
+		Settings settings = new Settings(new PropertyDefinitions(
+				TechnicalDebtPlugin.class));
+		for (RulePriority severity : RulePriority.values()) {
+			settings.setProperty(CostModel.scenarioKey("double",
+					TechnicalDebtPlugin.violationCostKey(severity)),
+					2 * TechnicalDebtPlugin.violationCostDefault(severity));
+		}
+		settings.setProperty(CostModel.scenarioKey("blocker",
+				TechnicalDebtPlugin.COST_BLOCKER_VIOLATION), 100.0);
+		CostModel costModel = new CostModel(settings);
+
+		assertEquals(costModel.getViolationCost(RulePriority.MAJOR),
+				calculator.linearCost(costModel), 0.0);
+		assertEquals(2 * costModel.getViolationCost(RulePriority.MAJOR),
+				calculator.linearCost(CostModel.scenario(settings, "double")),
+				0.0);
+		assertThat(Double.isNaN(calculator.linearCost(CostModel.scenario(
+				settings, "blocker"))), is(true));
+	}
+}